@@ -0,0 +1,128 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Paso del build (fase {@code process-classes}, ver pom.xml): genera junto a cada recurso estático
+ * comprimible su versión {@code .gz} y, si está instalado el comando {@code brotli}, también la
+ * {@code .br}. Spring las sirve directamente ({@code spring.web.resources.chain.compressed}) a los
+ * navegadores que las aceptan, sin comprimir en cada petición.
+ * <p>
+ * Se ejecuta como fichero fuente ({@code java PrecompressStaticResources.java <directorio>}), así
+ * que no forma parte de la aplicación. Los ficheros que no bajan de tamaño al comprimir no
+ * se dejan, y los que ya están al día no se vuelven a comprimir.
+ * </p>
+ */
+public class PrecompressStaticResources {
+
+    private static final Set<String> EXTENSIONS = Set.of("css", "js", "svg", "html", "json", "txt");
+
+    // Por debajo de este tamaño la compresión apenas ahorra frente a las cabeceras
+    private static final long MIN_SIZE = 1024;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path root = Path.of(args[0]);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        boolean brotli = brotliAvailable();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile).filter(PrecompressStaticResources::compressible).toList();
+        }
+        int written = 0;
+        for (Path file : files) {
+            if (gzip(file)) {
+                written++;
+            }
+            if (brotli && brotli(file)) {
+                written++;
+            }
+        }
+        System.out.printf("Recursos estáticos precomprimidos: %d ficheros nuevos (%d candidatos, brotli %s)%n",
+                written, files.size(), brotli ? "sí" : "no disponible");
+    }
+
+    private static boolean compressible(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        int dot = name.lastIndexOf('.');
+        try {
+            return dot > 0 && EXTENSIONS.contains(name.substring(dot + 1)) && Files.size(file) >= MIN_SIZE;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean gzip(Path file) throws IOException {
+        Path target = sibling(file, ".gz");
+        if (upToDate(file, target)) {
+            return false;
+        }
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(target)) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            Files.copy(file, out);
+        }
+        return keepIfSmaller(file, target);
+    }
+
+    private static boolean brotli(Path file) throws IOException, InterruptedException {
+        Path target = sibling(file, ".br");
+        if (upToDate(file, target)) {
+            return false;
+        }
+        Process process = new ProcessBuilder("brotli", "--force", "--quality=11",
+                "--output=" + target, file.toString()).inheritIO().start();
+        if (!process.waitFor(60, TimeUnit.SECONDS) || process.exitValue() != 0) {
+            process.destroy();
+            Files.deleteIfExists(target);
+            System.err.println("brotli ha fallado con " + file);
+            return false;
+        }
+        return keepIfSmaller(file, target);
+    }
+
+    private static boolean keepIfSmaller(Path file, Path target) throws IOException {
+        if (Files.size(target) >= Files.size(file)) {
+            Files.delete(target);
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean upToDate(Path file, Path target) throws IOException {
+        if (!Files.exists(target)) {
+            return false;
+        }
+        FileTime source = Files.getLastModifiedTime(file);
+        return Files.getLastModifiedTime(target).compareTo(source) >= 0;
+    }
+
+    private static Path sibling(Path file, String suffix) {
+        return file.resolveSibling(file.getFileName() + suffix);
+    }
+
+    private static boolean brotliAvailable() {
+        try {
+            Process process = new ProcessBuilder("brotli", "--version").redirectErrorStream(true).start();
+            process.getInputStream().transferTo(OutputStream.nullOutputStream());
+            return process.waitFor(10, TimeUnit.SECONDS) && process.exitValue() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
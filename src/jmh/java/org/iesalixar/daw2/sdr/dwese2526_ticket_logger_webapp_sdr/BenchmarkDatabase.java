@@ -0,0 +1,91 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base de datos H2 embebida para los benchmarks JMH ({@link TestDatabase}, la misma de los tests).
+ * <p>
+ * Se arranca en modo de compatibilidad MariaDB y se inicializa con los mismos
+ * <code>schema.sql</code> y <code>data.sql</code> que usa la aplicación, de forma que
+ * los DAOs ejecutan exactamente las mismas sentencias que en producción.
+ * </p>
+ */
+public final class BenchmarkDatabase implements AutoCloseable {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    private BenchmarkDatabase(String name) {
+        dataSource = TestDatabase.create(name, 8);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Crea una base de datos en memoria con el nombre indicado, ya inicializada con schema.sql y data.sql.
+     *
+     * @param name nombre de la base de datos; usar uno distinto por benchmark evita compartir estado
+     * @return la base de datos lista para usar
+     */
+    public static BenchmarkDatabase create(String name) {
+        return new BenchmarkDatabase(name);
+    }
+
+    public HikariDataSource getDataSource() {
+        return dataSource;
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    /**
+     * Sustituye las provincias de data.sql por {@code count} provincias generadas,
+     * repartidas entre las regiones existentes.
+     */
+    public void replaceProvinces(int count) {
+        jdbcTemplate.update("DELETE FROM provinces");
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= count; i++) {
+            batch.add(new Object[]{"P" + i, "Provincia " + i, (i % 18) + 1});
+            if (batch.size() == BATCH_SIZE || i == count) {
+                jdbcTemplate.batchUpdate("INSERT INTO provinces (code, name, region_id) VALUES (?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Sustituye los usuarios de data.sql por {@code count} usuarios generados ({@code user1}, {@code user2}...).
+     */
+    public void replaceUsers(int count) {
+        jdbcTemplate.update("DELETE FROM users");
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp expires = Timestamp.valueOf(LocalDateTime.now().plusMonths(3));
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= count; i++) {
+            batch.add(new Object[]{"user" + i, "$2a$10$hash" + i, true, i % 7 != 0, now, expires, i % 4, i % 2 == 0, false});
+            if (batch.size() == BATCH_SIZE || i == count) {
+                jdbcTemplate.batchUpdate("""
+                        INSERT INTO users (username, passwordHash, active, accountNonLocked, lastPasswordChange,
+                        passwordExpiresAt, failedLoginAttempts, emailVerified, mustChangePassword)
+                        VALUES (?,?,?,?,?,?,?,?,?)
+                        """, batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        jdbcTemplate.execute("SHUTDOWN");
+        dataSource.close();
+    }
+}
@@ -0,0 +1,112 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.cache;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.BenchmarkDatabase;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.ProvinceDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.ProvinceDaoImple;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.UsersDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.UsersDaoImple;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Province;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Users;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lecturas por id de los formularios de edición ({@code getUsersById} y {@code getProvinceById})
+ * directamente contra H2 en modo MariaDB frente a pasar por {@link EntityCache}, con 100.000
+ * usuarios y 10.000 provincias. El 90% de las lecturas va a un 1% de las filas (las que se están
+ * editando) y el resto se reparte por toda la tabla, así que también hay fallos y expulsiones.
+ * <p>
+ * H2 está en el mismo proceso: con MariaDB cada acierto ahorra además un viaje de red.
+ * </p>
+ *
+ * <pre>
+ *     mvn -Pjmh test-compile exec:exec -Djmh.args="EntityCacheBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityCacheBenchmark {
+
+    private static final int USERS = 100_000;
+    private static final int PROVINCES = 10_000;
+
+    private BenchmarkDatabase database;
+    private UsersDAO usersDAO;
+    private ProvinceDAO provinceDAO;
+    private UsersDAO cachedUsersDAO;
+    private ProvinceDAO cachedProvinceDAO;
+    private long firstUserId;
+    private long firstProvinceId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.create("entity-cache");
+        database.replaceUsers(USERS);
+        database.replaceProvinces(PROVINCES);
+        usersDAO = new UsersDaoImple(database.getJdbcTemplate());
+        provinceDAO = new ProvinceDaoImple(database.getJdbcTemplate());
+
+        // Límite por debajo de las filas de cada tabla, como en producción
+        EntityCache entityCache = new EntityCache(5_000, Duration.ofMinutes(10));
+        cachedUsersDAO = cached(usersDAO, entityCache);
+        cachedProvinceDAO = cached(provinceDAO, entityCache);
+
+        firstUserId = database.getJdbcTemplate().queryForObject("SELECT MIN(id) FROM users", Long.class);
+        firstProvinceId = database.getJdbcTemplate().queryForObject("SELECT MIN(id) FROM provinces", Long.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Users usersDirect() {
+        return usersDAO.getUsersById(firstUserId + skewed(USERS));
+    }
+
+    @Benchmark
+    public Users usersCached() {
+        return cachedUsersDAO.getUsersById(firstUserId + skewed(USERS));
+    }
+
+    @Benchmark
+    public Province provincesDirect() {
+        return provinceDAO.getProvinceById(firstProvinceId + skewed(PROVINCES));
+    }
+
+    @Benchmark
+    public Province provincesCached() {
+        return cachedProvinceDAO.getProvinceById(firstProvinceId + skewed(PROVINCES));
+    }
+
+    private static <T> T cached(Object dao, EntityCache entityCache) {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(dao);
+        proxyFactory.addAspect(entityCache);
+        return proxyFactory.getProxy();
+    }
+
+    private static int skewed(int rows) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return random.nextInt(10) < 9 ? random.nextInt(rows / 100) : random.nextInt(rows);
+    }
+}
@@ -0,0 +1,81 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.coalescing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.BenchmarkDatabase;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.ProvinceDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.ProvinceDaoImple;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Province;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Muchas peticiones a la vez al listado de provincias: 32 hilos llamando a
+ * {@code listAllProvinces()} sobre H2 en modo MariaDB con 10.000 provincias, directamente frente
+ * a través de {@link CoalescingAspect}. El pool de {@link BenchmarkDatabase} limita las consultas
+ * simultáneas, como el de Hikari en producción.
+ * <p>
+ * Con {@code -prof gc} se ve también la memoria: cada llamada agrupada copia las entidades, pero
+ * sin leer ni convertir filas del {@code ResultSet}. Con {@code -t 1} nadie se une a ninguna
+ * consulta y {@code coalesced} debe reservar lo mismo que {@code direct}: no se copia nada.
+ * </p>
+ *
+ * <pre>
+ *     mvn -Pjmh test-compile exec:exec -Djmh.args="CoalescingBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+@State(Scope.Benchmark)
+public class CoalescingBenchmark {
+
+    private static final int PROVINCES = 10_000;
+
+    private BenchmarkDatabase database;
+    private ProvinceDAO provinceDAO;
+    private ProvinceDAO coalescedProvinceDAO;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.create("coalescing");
+        database.replaceProvinces(PROVINCES);
+        provinceDAO = new ProvinceDaoImple(database.getJdbcTemplate());
+
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new ProvinceDaoImple(database.getJdbcTemplate()));
+        proxyFactory.addAspect(new CoalescingAspect(new SimpleMeterRegistry()));
+        coalescedProvinceDAO = proxyFactory.getProxy();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Province> direct() {
+        return provinceDAO.listAllProvinces();
+    }
+
+    @Benchmark
+    public List<Province> coalesced() {
+        return coalescedProvinceDAO.listAllProvinces();
+    }
+}
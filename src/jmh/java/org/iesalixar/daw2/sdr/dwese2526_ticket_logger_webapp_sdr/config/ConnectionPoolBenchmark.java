@@ -0,0 +1,93 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Prueba de carga del pool de Hikari: 16 hilos piden conexión, ejecutan una consulta y la retienen
+ * {@code holdMicros} (lo que tardaría una consulta real en MariaDB), con un pool de
+ * {@code poolSize} conexiones. Con 16 conexiones ningún hilo espera; con menos, el pool está
+ * saturado y cada petición espera a que se devuelva una conexión.
+ * <p>
+ * La puntuación (SampleTime, con percentiles) es el tiempo total de cada petición: espera en el
+ * pool más {@code holdMicros}. Al terminar se imprime además la espera media y máxima medida por el
+ * propio Hikari ({@code hikaricp.connections.acquire}, la métrica que publica Actuator).
+ * </p>
+ *
+ * <pre>
+ *     mvn -Pjmh test-compile exec:exec -Djmh.args="ConnectionPoolBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class ConnectionPoolBenchmark {
+
+    @Param({"16", "8", "4"})
+    private int poolSize;
+
+    @Param({"1000"})
+    private long holdMicros;
+
+    private SimpleMeterRegistry registry;
+    private HikariDataSource dataSource;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:pool-" + poolSize + ";MODE=MariaDB;DB_CLOSE_DELAY=-1");
+        dataSource.setPoolName("benchmark");
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setMinimumIdle(poolSize);
+        dataSource.setConnectionTimeout(5000);
+        dataSource.setMetricRegistry(registry);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Timer acquire = registry.find("hikaricp.connections.acquire").timer();
+        if (acquire != null) {
+            System.out.printf("%nPool de %d conexiones: espera en Hikari media=%.0fus, máxima=%.0fus (%d peticiones)%n",
+                    poolSize, acquire.mean(TimeUnit.MICROSECONDS), acquire.max(TimeUnit.MICROSECONDS), acquire.count());
+        }
+        dataSource.close();
+    }
+
+    @Benchmark
+    public int acquireQueryRelease() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT 1")) {
+            rs.next();
+            LockSupport.parkNanos(holdMicros * 1000);
+            return rs.getInt(1);
+        }
+    }
+}
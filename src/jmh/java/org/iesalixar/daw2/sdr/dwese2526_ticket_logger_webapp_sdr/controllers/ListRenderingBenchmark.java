@@ -0,0 +1,129 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.controllers;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Province;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Region;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.UserListItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.io.CharArrayWriter;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide el renderizado completo con Thymeleaf de <code>province-list.html</code> y
+ * <code>user-list.html</code> (cabecera, fragmentos y una fila por elemento) con 10,
+ * 1.000 y 100.000 filas.
+ * <p>
+ * El motor se configura como en la aplicación: plantillas de <code>templates/</code>,
+ * mensajes de <code>messages*.properties</code> y un contexto web (necesario para las
+ * expresiones {@code @{...}}), con el mismo modelo que preparan los controladores.
+ * </p>
+ *
+ * <pre>
+ *     mvn -Pjmh test-compile exec:exec -Djmh.args="ListRenderingBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ListRenderingBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int rows;
+
+    private SpringTemplateEngine templateEngine;
+    private JakartaServletWebApplication application;
+    private MockServletContext servletContext;
+    private Map<String, Object> provinceModel;
+    private Map<String, Object> userModel;
+    private CharArrayWriter writer;
+
+    @Setup
+    public void setUp() {
+        ClassLoaderTemplateResolver templateResolver = new ClassLoaderTemplateResolver();
+        templateResolver.setPrefix("templates/");
+        templateResolver.setSuffix(".html");
+        templateResolver.setTemplateMode(TemplateMode.HTML);
+        templateResolver.setCharacterEncoding("UTF-8");
+        templateResolver.setCacheable(true);
+
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        messageSource.setFallbackToSystemLocale(false);
+
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+        templateEngine.setTemplateEngineMessageSource(messageSource);
+
+        servletContext = new MockServletContext();
+        application = JakartaServletWebApplication.buildApplication(servletContext);
+
+        List<Province> provinces = new ArrayList<>(rows);
+        for (int i = 1; i <= rows; i++) {
+            long regionId = (i % 18) + 1;
+            provinces.add(new Province((long) i, "P" + i, "Provincia " + i,
+                    new Region(regionId, String.format("%02d", regionId), "REGION " + regionId)));
+        }
+        provinceModel = Map.of("listProvinces", provinces);
+
+        List<UserListItem> users = new ArrayList<>(rows);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 1; i <= rows; i++) {
+            users.add(new UserListItem(i, "user" + i, now, now.plusMonths(3), i % 4,
+                    UserListItem.flags(true, i % 7 != 0, i % 2 == 0, false)));
+        }
+        userModel = Map.of(
+                "listUsers", users,
+                "nextAfter", (long) rows,
+                "pageSize", rows,
+                "sort", "id");
+
+        writer = new CharArrayWriter(rows * 512);
+    }
+
+    @Benchmark
+    public int renderProvinceList() {
+        return render("views/province/province-list", provinceModel);
+    }
+
+    @Benchmark
+    public int renderUserList() {
+        return render("views/users/user-list", userModel);
+    }
+
+    private int render(String template, Map<String, Object> model) {
+        MockHttpServletRequest request = new MockHttpServletRequest(servletContext, "GET", "/");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        WebContext context = new WebContext(application.buildExchange(request, response), Locale.of("es"), model);
+        writer.reset();
+        templateEngine.process(template, context, writer);
+        return writer.size();
+    }
+}
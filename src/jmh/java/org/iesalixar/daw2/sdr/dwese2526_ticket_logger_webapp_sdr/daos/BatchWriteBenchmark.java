@@ -0,0 +1,83 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.BenchmarkDatabase;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Users;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carga de {@code users} fila a fila ({@code insertUser}) frente a la carga por lotes
+ * ({@code insertUsers}). Cada iteración parte de una tabla vacía.
+ * <p>
+ * En H2 embebido no hay red, así que la diferencia medida es solo la del lado cliente;
+ * contra MariaDB se suma además una ida y vuelta al servidor por cada fila evitada.
+ * </p>
+ *
+ * <pre>
+ *     mvn -Pjmh test-compile exec:exec -Djmh.args="BatchWriteBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchWriteBenchmark {
+
+    @Param({"50000"})
+    private int rows;
+
+    private BenchmarkDatabase database;
+    private UsersDAO usersDAO;
+    private List<Users> users;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.create("batch-write");
+        usersDAO = new UsersDaoImple(database.getJdbcTemplate());
+        users = new ArrayList<>(rows);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 1; i <= rows; i++) {
+            users.add(new Users("user" + i, "$2a$10$hash" + i, true, true, now, now.plusMonths(3), 0, false, false));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void emptyUsers() {
+        database.getJdbcTemplate().update("DELETE FROM users");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public void insertUserOneByOne() {
+        for (Users user : users) {
+            usersDAO.insertUser(user);
+        }
+    }
+
+    @Benchmark
+    public int[] insertUsersBatch() {
+        return usersDAO.insertUsers(users);
+    }
+}
@@ -0,0 +1,107 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.BenchmarkDatabase;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Users;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formulario de usuarios sobre H2 en modo MariaDB con 100.000 usuarios: comprobar el username
+ * con {@code existsUserBy*} y después escribir (como hacían los controladores) frente a escribir
+ * directamente y mirar el {@link WriteOutcome}.
+ * <ul>
+ *     <li>{@code *Update}: guardar un usuario sin cambiar el username (el caso habitual).</li>
+ *     <li>{@code *InsertDuplicate}: alta con un username que ya existe; sin comprobación previa
+ *     el rechazo llega como {@code DuplicateKeyException} y se traduce a {@code DUPLICATE}.</li>
+ * </ul>
+ * <p>
+ * H2 está en el mismo proceso, así que aquí no se ve el ahorro principal: un viaje de red a
+ * MariaDB menos por cada alta o modificación.
+ * </p>
+ *
+ * <pre>
+ *     mvn -Pjmh test-compile exec:exec -Djmh.args="ConflictAwareWriteBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConflictAwareWriteBenchmark {
+
+    private static final int USERS = 100_000;
+
+    private BenchmarkDatabase database;
+    private UsersDAO usersDAO;
+    private long firstId;
+    private int lookup;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.create("conflict-aware-write");
+        database.replaceUsers(USERS);
+        usersDAO = new UsersDaoImple(database.getJdbcTemplate());
+        // Los ids no empiezan en 1: data.sql ya había insertado usuarios antes de replaceUsers
+        firstId = database.getJdbcTemplate().queryForObject("SELECT id FROM users WHERE username = 'user1'", Long.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public WriteOutcome checkThenUpdate() {
+        Users user = user(nextLookup());
+        if (usersDAO.existsUserByUsernameAndNotId(user.getUsername(), user.getId())) {
+            return WriteOutcome.DUPLICATE;
+        }
+        return usersDAO.updateUsers(user);
+    }
+
+    @Benchmark
+    public WriteOutcome directUpdate() {
+        return usersDAO.updateUsers(user(nextLookup()));
+    }
+
+    @Benchmark
+    public WriteOutcome checkThenInsertDuplicate() {
+        Users user = user(nextLookup());
+        if (usersDAO.existsUserByUsername(user.getUsername())) {
+            return WriteOutcome.DUPLICATE;
+        }
+        return usersDAO.insertUser(user);
+    }
+
+    @Benchmark
+    public WriteOutcome directInsertDuplicate() {
+        return usersDAO.insertUser(user(nextLookup()));
+    }
+
+    // Mismos datos que BenchmarkDatabase.replaceUsers, con el id que le corresponde
+    private Users user(int i) {
+        LocalDateTime now = LocalDateTime.now();
+        return new Users(firstId + i - 1, "user" + i, "$2a$10$hash" + i, true, i % 7 != 0,
+                now, now.plusMonths(3), i % 4, i % 2 == 0, false);
+    }
+
+    private int nextLookup() {
+        lookup = lookup % USERS + 1;
+        return lookup;
+    }
+}
@@ -0,0 +1,84 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.BenchmarkDatabase;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Province;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks de los DAOs contra H2 embebido en modo MariaDB, con 10, 1.000 y 100.000 filas.
+ * <ul>
+ *     <li>{@code listAllProvinces}: JOIN provinces/regions más {@code provinceRowMapper}.</li>
+ *     <li>{@code existsUserByUsername}: comprobación de unicidad del formulario de usuarios,
+ *     con usernames existentes y con usernames que no existen.</li>
+ * </ul>
+ * <p>
+ * Los usernames consultados cambian en cada invocación porque H2 reutiliza el resultado
+ * de una consulta idéntica si las tablas no han cambiado, lo que falsearía la medida.
+ * </p>
+ *
+ * <pre>
+ *     mvn -Pjmh test-compile exec:exec -Djmh.args="DaoBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DaoBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int rows;
+
+    private BenchmarkDatabase database;
+    private ProvinceDAO provinceDAO;
+    private UsersDAO usersDAO;
+    private int lookup;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.create("dao-" + rows);
+        database.replaceProvinces(rows);
+        database.replaceUsers(rows);
+        provinceDAO = new ProvinceDaoImple(database.getJdbcTemplate());
+        usersDAO = new UsersDaoImple(database.getJdbcTemplate());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Province> listAllProvinces() {
+        return provinceDAO.listAllProvinces();
+    }
+
+    @Benchmark
+    public boolean existsUserByUsernameHit() {
+        lookup = lookup % rows + 1;
+        return usersDAO.existsUserByUsername("USER" + lookup);
+    }
+
+    @Benchmark
+    public boolean existsUserByUsernameMiss() {
+        lookup = lookup % rows + 1;
+        return usersDAO.existsUserByUsername("nobody" + lookup);
+    }
+}
@@ -0,0 +1,132 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.BenchmarkDatabase;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Province;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Users;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste del logging de los DAOs en una "petición" típica (leer un usuario, comprobar un username
+ * y listar provincias), con 4 hilos a la vez:
+ * <ul>
+ *     <li>{@code off}: configuración actual, la traza de los DAOs está en DEBUG y el nivel es INFO.</li>
+ *     <li>{@code sync}: traza activada y escrita por el hilo que llama, como hacía la consola por defecto.</li>
+ *     <li>{@code async}: traza activada a través de un {@link AsyncAppender} como el de logback-spring.xml.</li>
+ * </ul>
+ * La salida va a un fichero temporal para no mezclarla con la de JMH.
+ *
+ * <pre>
+ *     mvn -Pjmh test-compile exec:exec -Djmh.args="LoggingOverheadBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoggingOverheadBenchmark {
+
+    @Param({"off", "sync", "async"})
+    private String logging;
+
+    private BenchmarkDatabase database;
+    private UsersDAO usersDAO;
+    private ProvinceDAO provinceDAO;
+    private File logFile;
+    private Appender<ILoggingEvent> appender;
+
+    @Setup
+    public void setUp() throws IOException {
+        database = BenchmarkDatabase.create("logging-" + logging);
+        database.replaceUsers(1000);
+        database.replaceProvinces(50);
+        usersDAO = new UsersDaoImple(database.getJdbcTemplate());
+        provinceDAO = new ProvinceDaoImple(database.getJdbcTemplate());
+
+        Logger daoLogger = (Logger) LoggerFactory.getLogger(UsersDaoImple.class.getPackageName());
+        daoLogger.setAdditive(false);
+        if ("off".equals(logging)) {
+            daoLogger.setLevel(Level.INFO);
+            return;
+        }
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        logFile = File.createTempFile("dao-logging", ".log");
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5level %pid --- [%thread] %-40.40logger{39} : %msg%n");
+        encoder.start();
+
+        FileAppender<ILoggingEvent> file = new FileAppender<>();
+        file.setContext(context);
+        file.setFile(logFile.getAbsolutePath());
+        file.setEncoder(encoder);
+        file.start();
+        appender = file;
+
+        if ("async".equals(logging)) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(8192);
+            async.setDiscardingThreshold(1638);
+            async.setNeverBlock(true);
+            async.setIncludeCallerData(false);
+            async.addAppender(file);
+            async.start();
+            appender = async;
+        }
+        daoLogger.setLevel(Level.DEBUG);
+        daoLogger.addAppender(appender);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Logger daoLogger = (Logger) LoggerFactory.getLogger(UsersDaoImple.class.getPackageName());
+        if (appender != null) {
+            daoLogger.detachAppender(appender);
+            appender.stop();
+            logFile.delete();
+        }
+        daoLogger.setLevel(null);
+        daoLogger.setAdditive(true);
+        database.close();
+    }
+
+    @Benchmark
+    public Object request() {
+        int id = ThreadLocalRandom.current().nextInt(1, 1001);
+        Users user = usersDAO.getUsersById(id);
+        boolean exists = usersDAO.existsUserByUsername("user" + id);
+        List<Province> provinces = provinceDAO.listAllProvinces();
+        return exists ? provinces : user;
+    }
+}
@@ -0,0 +1,101 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.BenchmarkDatabase;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Province;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.UserListItem;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Users;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Autocompletado (10 resultados) sobre {@code users} y {@code provinces} de {@code rows} filas:
+ * búsqueda por prefijo sobre las columnas indexadas {@code *_norm}
+ * ({@link UsersDAO#searchUsersByUsernamePrefix}, {@link ProvinceDAO#searchProvinces}) frente a
+ * cargar la tabla entera y filtrar en memoria, que es lo que hacía el listado completo.
+ * <p>
+ * El prefijo cambia en cada llamada para que H2 no reutilice el resultado de la consulta anterior.
+ * </p>
+ *
+ * <pre>
+ *     mvn -Pjmh test-compile exec:exec -Djmh.args="PrefixSearchBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrefixSearchBenchmark {
+
+    private static final int SUGGESTIONS = 10;
+
+    @Param({"100000"})
+    private int rows;
+
+    private BenchmarkDatabase database;
+    private UsersDAO usersDAO;
+    private ProvinceDAO provinceDAO;
+    private int lookup;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.create("prefix-search-" + rows);
+        database.replaceUsers(rows);
+        database.replaceProvinces(rows);
+        usersDAO = new UsersDaoImple(database.getJdbcTemplate());
+        provinceDAO = new ProvinceDaoImple(database.getJdbcTemplate());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<UserListItem> usersPrefix() {
+        return usersDAO.searchUsersByUsernamePrefix("user" + nextLookup(), SUGGESTIONS);
+    }
+
+    @Benchmark
+    public List<Users> usersFullScan() {
+        String prefix = ("user" + nextLookup()).toUpperCase();
+        return usersDAO.listAllUsers().stream()
+                .filter(user -> user.getUsername().toUpperCase().startsWith(prefix))
+                .limit(SUGGESTIONS)
+                .toList();
+    }
+
+    @Benchmark
+    public List<Province> provincesPrefix() {
+        return provinceDAO.searchProvinces("provincia " + nextLookup(), null, SUGGESTIONS);
+    }
+
+    @Benchmark
+    public List<Province> provincesFullScan() {
+        String prefix = ("provincia " + nextLookup()).toUpperCase();
+        return provinceDAO.listAllProvinces().stream()
+                .filter(province -> province.getName().toUpperCase().startsWith(prefix))
+                .limit(SUGGESTIONS)
+                .toList();
+    }
+
+    private int nextLookup() {
+        lookup = lookup % rows + 1;
+        return lookup;
+    }
+}
@@ -0,0 +1,151 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
+
+import org.h2.tools.SimpleResultSet;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Province;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Region;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Users;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara el mapeo de filas con {@link BeanPropertyRowMapper} (como se hacía antes en
+ * {@link RegionDaoImpl} y {@link UsersDaoImple}) frente a los mapeadores precompilados
+ * por posición de columna ({@code regionRowMapper} y {@code usersRowMapper}), y mide también
+ * el {@code provinceRowMapper} de {@link ProvinceDaoImple} sobre las columnas de su JOIN, con
+ * las regiones compartidas de {@link RegionInterner} frente a un {@link Region} nuevo por fila
+ * (como antes). Con {@code -prof gc} se ven los bytes reservados por consulta.
+ * <p>
+ * Se usa un {@link SimpleResultSet} de H2 en memoria como sustituto del {@code ResultSet}
+ * del driver, para medir solo el coste del mapeo y no el de la red o la base de datos.
+ * Como en los DAOs originales, la variante "bean" crea el {@code BeanPropertyRowMapper}
+ * en cada consulta.
+ * </p>
+ *
+ * <pre>
+ *     mvn -Pjmh test-compile exec:exec -Djmh.args="RowMapperBenchmark -prof gc"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RowMapperBenchmark {
+
+    @Param({"100000"})
+    private int rows;
+
+    private SimpleResultSet regionsResultSet;
+    private SimpleResultSet usersResultSet;
+    private SimpleResultSet provincesResultSet;
+
+    @Setup
+    public void setUp() {
+        regionsResultSet = new SimpleResultSet();
+        regionsResultSet.setAutoClose(false);
+        regionsResultSet.addColumn("id", Types.BIGINT, 19, 0);
+        regionsResultSet.addColumn("code", Types.VARCHAR, 10, 0);
+        regionsResultSet.addColumn("name", Types.VARCHAR, 100, 0);
+        for (int i = 1; i <= rows; i++) {
+            regionsResultSet.addRow((long) i, String.format("%02d", i % 100), "REGION " + i);
+        }
+
+        usersResultSet = new SimpleResultSet();
+        usersResultSet.setAutoClose(false);
+        usersResultSet.addColumn("id", Types.BIGINT, 19, 0);
+        usersResultSet.addColumn("username", Types.VARCHAR, 40, 0);
+        usersResultSet.addColumn("passwordHash", Types.VARCHAR, 500, 0);
+        usersResultSet.addColumn("active", Types.BOOLEAN, 1, 0);
+        usersResultSet.addColumn("accountNonLocked", Types.BOOLEAN, 1, 0);
+        usersResultSet.addColumn("lastPasswordChange", Types.TIMESTAMP, 26, 6);
+        usersResultSet.addColumn("passwordExpiresAt", Types.TIMESTAMP, 26, 6);
+        usersResultSet.addColumn("failedLoginAttempts", Types.INTEGER, 10, 0);
+        usersResultSet.addColumn("emailVerified", Types.BOOLEAN, 1, 0);
+        usersResultSet.addColumn("mustChangePassword", Types.BOOLEAN, 1, 0);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 1; i <= rows; i++) {
+            usersResultSet.addRow((long) i, "user" + i, "$2a$10$hash" + i, true, i % 7 != 0,
+                    Timestamp.valueOf(now), Timestamp.valueOf(now.plusMonths(3)), i % 4, i % 2 == 0, false);
+        }
+
+        // Mismos alias que el SELECT de ProvinceDaoImple.listAllProvinces
+        provincesResultSet = new SimpleResultSet();
+        provincesResultSet.setAutoClose(false);
+        provincesResultSet.addColumn("id", Types.BIGINT, 19, 0);
+        provincesResultSet.addColumn("code", Types.VARCHAR, 10, 0);
+        provincesResultSet.addColumn("name", Types.VARCHAR, 100, 0);
+        provincesResultSet.addColumn("region_id", Types.BIGINT, 19, 0);
+        provincesResultSet.addColumn("region_code", Types.VARCHAR, 10, 0);
+        provincesResultSet.addColumn("region_name", Types.VARCHAR, 100, 0);
+        for (int i = 1; i <= rows; i++) {
+            long regionId = (i % 18) + 1;
+            provincesResultSet.addRow((long) i, "P" + i, "Provincia " + i,
+                    regionId, String.format("%02d", regionId), "REGION " + regionId);
+        }
+    }
+
+    @Benchmark
+    public void regionBeanPropertyRowMapper(Blackhole blackhole) throws SQLException {
+        mapAll(regionsResultSet, new BeanPropertyRowMapper<>(Region.class), blackhole);
+    }
+
+    @Benchmark
+    public void regionIndexRowMapper(Blackhole blackhole) throws SQLException {
+        mapAll(regionsResultSet, RegionDaoImpl.regionRowMapper, blackhole);
+    }
+
+    @Benchmark
+    public void usersBeanPropertyRowMapper(Blackhole blackhole) throws SQLException {
+        mapAll(usersResultSet, new BeanPropertyRowMapper<>(Users.class), blackhole);
+    }
+
+    @Benchmark
+    public void usersIndexRowMapper(Blackhole blackhole) throws SQLException {
+        mapAll(usersResultSet, UsersDaoImple.usersRowMapper, blackhole);
+    }
+
+    @Benchmark
+    public void provinceRowMapper(Blackhole blackhole) throws SQLException {
+        mapAll(provincesResultSet, ProvinceDaoImple.provinceRowMapper(), blackhole);
+    }
+
+    @Benchmark
+    public void provinceRowMapperRegionPerRow(Blackhole blackhole) throws SQLException {
+        mapAll(provincesResultSet, (rs, rowNum) -> {
+            Province province = new Province();
+            province.setId(rs.getLong("id"));
+            province.setCode(rs.getString("code"));
+            province.setName(rs.getString("name"));
+            province.setRegion(new Region(rs.getLong("region_id"), rs.getString("region_code"), rs.getString("region_name")));
+            return province;
+        }, blackhole);
+    }
+
+    private static <T> void mapAll(ResultSet rs, RowMapper<T> rowMapper, Blackhole blackhole) throws SQLException {
+        rs.beforeFirst();
+        int rowNum = 0;
+        while (rs.next()) {
+            blackhole.consume(rowMapper.mapRow(rs, rowNum++));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.BenchmarkDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Comprobación de unicidad de {@code username} sobre una tabla {@code users} de 1.000.000 filas:
+ * la consulta anterior ({@code COUNT(*) ... WHERE UPPER(username) = ?}, recorrido completo)
+ * frente a {@link UsersDAO#existsUserByUsername(String)} ({@code EXISTS} sobre la columna
+ * indexada {@code username_norm}).
+ * <p>
+ * Igual que en {@link DaoBenchmark}, el username cambia en cada llamada para que H2 no
+ * reutilice el resultado de la consulta anterior.
+ * </p>
+ *
+ * <pre>
+ *     mvn -Pjmh test-compile exec:exec -Djmh.args="UniquenessCheckBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UniquenessCheckBenchmark {
+
+    private static final String LEGACY_SQL = "SELECT COUNT(*) FROM users WHERE UPPER(username) = ?";
+
+    @Param({"1000000"})
+    private int rows;
+
+    private BenchmarkDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private UsersDAO usersDAO;
+    private int lookup;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.create("uniqueness-" + rows);
+        database.replaceUsers(rows);
+        jdbcTemplate = database.getJdbcTemplate();
+        usersDAO = new UsersDaoImple(jdbcTemplate);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public boolean upperCountHit() {
+        Integer count = jdbcTemplate.queryForObject(LEGACY_SQL, Integer.class, "USER" + nextLookup());
+        return count != null && count > 0;
+    }
+
+    @Benchmark
+    public boolean upperCountMiss() {
+        Integer count = jdbcTemplate.queryForObject(LEGACY_SQL, Integer.class, "NOBODY" + nextLookup());
+        return count != null && count > 0;
+    }
+
+    @Benchmark
+    public boolean existsNormalizedHit() {
+        return usersDAO.existsUserByUsername("User" + nextLookup());
+    }
+
+    @Benchmark
+    public boolean existsNormalizedMiss() {
+        return usersDAO.existsUserByUsername("nobody" + nextLookup());
+    }
+
+    private int nextLookup() {
+        lookup = lookup % rows + 1;
+        return lookup;
+    }
+}
@@ -0,0 +1,89 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.BenchmarkDatabase;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.UserListItem;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Users;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara una página del listado de usuarios ({@link UsersDAO#listUsersPage}) leyendo la fila
+ * completa en {@link Users}, como se hacía antes, frente a la proyección {@link UserListItem}
+ * (sin {@code passwordHash} y con los booleanos empaquetados), sobre H2 en modo MariaDB con
+ * 100.000 usuarios y páginas de 50 y 500 filas (el tamaño por defecto y el máximo del listado).
+ * <p>
+ * Los {@code passwordHash} se sustituyen por cadenas de 60 caracteres, la longitud de un hash
+ * bcrypt. Con {@code -prof gc} se ven también los bytes reservados por página.
+ * </p>
+ *
+ * <pre>
+ *     mvn -Pjmh test-compile exec:exec -Djmh.args="UserListProjectionBenchmark -prof gc"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserListProjectionBenchmark {
+
+    private static final int USERS = 100_000;
+
+    @Param({"50", "500"})
+    private int pageSize;
+
+    private BenchmarkDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private UsersDAO usersDAO;
+    private long after;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.create("user-list-" + pageSize);
+        database.replaceUsers(USERS);
+        jdbcTemplate = database.getJdbcTemplate();
+        jdbcTemplate.update("UPDATE users SET passwordHash = CONCAT('$2a$10$', REPEAT('x', 53))");
+        usersDAO = new UsersDaoImple(jdbcTemplate);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Users> fullEntityPage() {
+        // La consulta que hacía listUsersPage antes de la proyección
+        String sql = "SELECT id, username, passwordHash, active, accountNonLocked, lastPasswordChange, "
+                + "passwordExpiresAt, failedLoginAttempts, emailVerified, mustChangePassword "
+                + "FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        return jdbcTemplate.query(sql, UsersDaoImple.usersRowMapper, nextAfter(), pageSize);
+    }
+
+    @Benchmark
+    public List<UserListItem> listItemPage() {
+        return usersDAO.listUsersPage(nextAfter(), pageSize);
+    }
+
+    // Cada invocación pide otra página para que H2 no reutilice el resultado anterior
+    private long nextAfter() {
+        after = (after + 997) % (USERS - pageSize);
+        return after;
+    }
+}
@@ -0,0 +1,123 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.search;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.BenchmarkDatabase;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.ProvinceDaoImple;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.RegionDaoImpl;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.UsersDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.UsersDaoImple;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.UserListItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SearchIndex} sobre {@code rows} usuarios y {@code rows} provincias más las regiones de
+ * data.sql: latencia de una búsqueda exacta, por prefijo y con erratas, frente a la búsqueda por
+ * prefijo en la base de datos ({@link UsersDAO#searchUsersByUsernamePrefix}), y duración de una
+ * reconstrucción completa del índice.
+ *
+ * <pre>
+ *     mvn -Pjmh test-compile exec:exec -Djmh.args="SearchIndexBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchIndexBenchmark {
+
+    private static final int RESULTS = 10;
+
+    @Param({"100000"})
+    private int rows;
+
+    private BenchmarkDatabase database;
+    private UsersDAO usersDAO;
+    private SearchIndex searchIndex;
+    private Path indexDir;
+    private int lookup;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        database = BenchmarkDatabase.create("search-index-" + rows);
+        database.replaceUsers(rows);
+        database.replaceProvinces(rows);
+        usersDAO = new UsersDaoImple(database.getJdbcTemplate());
+        indexDir = Files.createTempDirectory("search-index-benchmark");
+        searchIndex = new SearchIndex(new RegionDaoImpl(database.getJdbcTemplate()),
+                new ProvinceDaoImple(database.getJdbcTemplate()), usersDAO, new SimpleMeterRegistry(),
+                indexDir.toString(), true, Duration.ofSeconds(30));
+        searchIndex.open();
+        searchIndex.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        searchIndex.close();
+        FileSystemUtils.deleteRecursively(indexDir);
+        database.close();
+    }
+
+    @Benchmark
+    public List<SearchHit> exactTerm() {
+        return searchIndex.search("user" + nextLookup(), null, RESULTS);
+    }
+
+    @Benchmark
+    public List<SearchHit> prefix() {
+        return searchIndex.search("user" + nextLookup() / 10, null, RESULTS);
+    }
+
+    // "usre123": una transposición, se encuentra con la búsqueda difusa
+    @Benchmark
+    public List<SearchHit> fuzzy() {
+        return searchIndex.search("usre" + nextLookup(), null, RESULTS);
+    }
+
+    // Varias palabras con tildes sobre provincias y regiones ("provincia 123 castilla")
+    @Benchmark
+    public List<SearchHit> accentedWords() {
+        return searchIndex.search("Próvincia " + nextLookup() + " castilla", SearchHit.Type.PROVINCE, RESULTS);
+    }
+
+    @Benchmark
+    public List<UserListItem> databasePrefix() {
+        return usersDAO.searchUsersByUsernamePrefix("user" + nextLookup() / 10, RESULTS);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public long rebuild() throws IOException {
+        searchIndex.rebuild();
+        return searchIndex.documentCount();
+    }
+
+    private int nextLookup() {
+        lookup = lookup % rows + 1;
+        return lookup;
+    }
+}
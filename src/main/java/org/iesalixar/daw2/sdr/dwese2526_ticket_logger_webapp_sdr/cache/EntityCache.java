@@ -0,0 +1,275 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.After;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.config.DaoAspectOrder;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.datasource.DataSourceRoute;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Province;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Region;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Users;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Caché por id de {@code UsersDAO.getUsersById} y {@code ProvinceDAO.getProvinceById}, las lecturas
+ * de los formularios de edición (también al volver a ellos tras un error de validación).
+ * <p>
+ * Son dos cachés Caffeine (W-TinyLFU) con el mismo límite de entradas
+ * ({@code app.cache.entities.max-size}) y caducidad desde que se cargan
+ * ({@code app.cache.entities.ttl}). Se invalidan sin tocar los DAOs, igual que el índice de búsqueda:
+ * </p>
+ * <ul>
+ *     <li>{@code update*} y {@code delete*} de {@code UsersDAO} y {@code ProvinceDAO} quitan las
+ *     filas escritas (una, por id o por lotes);</li>
+ *     <li>{@code update*} y {@code delete*} de {@code RegionDAO} quitan las provincias de esas
+ *     regiones, porque cada provincia guarda el código y el nombre de su región.</li>
+ * </ul>
+ * <p>
+ * Las invalidaciones se hacen aunque la escritura lance una excepción (un lote puede fallar con
+ * bloques anteriores ya confirmados), y dentro de una transacción se repiten después del commit.
+ * Cada invalidación incrementa además la versión de su caché: una carga que empezó antes no guarda
+ * su fila si la versión ha cambiado mientras tanto (el mismo esquema que {@code TableVersion} en los
+ * DAOs).
+ * </p>
+ * <p>
+ * Dentro de una transacción no se lee ni se guarda nada en la caché. Las cargas van siempre al
+ * primario: con réplica, una fila leída durante el retraso de replicación se quedaría en la caché
+ * hasta caducar. Cada llamada recibe su propia copia de la entidad, así que modificarla no cambia
+ * la que está en la caché.
+ * </p>
+ * <p>
+ * Métricas (etiqueta {@code cache}: {@code users} o {@code provinces}): las de Micrometer para
+ * Caffeine ({@code cache.gets}, {@code cache.evictions}, {@code cache.size}...), más
+ * {@code cache.hit.ratio} y {@code cache.memory.estimate} (bytes, estimados a partir de una muestra
+ * de entradas).
+ * </p>
+ */
+@Aspect
+@Component
+@Order(DaoAspectOrder.ENTITY_CACHE)
+public class EntityCache implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(EntityCache.class);
+
+    static final String USERS = "users";
+    static final String PROVINCES = "provinces";
+
+    // Entradas que se recorren para estimar la memoria
+    private static final int MEMORY_SAMPLE = 64;
+    // Nodo de Caffeine más la clave Long, aproximado
+    private static final long ENTRY_OVERHEAD = 80;
+
+    private final Cache<Long, Users> users;
+    private final Cache<Long, Province> provinces;
+    // Invalidaciones de cada caché, para descartar las cargas que empezaron antes
+    private final AtomicLong usersVersion = new AtomicLong();
+    private final AtomicLong provincesVersion = new AtomicLong();
+
+    public EntityCache(@Value("${app.cache.entities.max-size:10000}") long maxSize,
+                       @Value("${app.cache.entities.ttl:10m}") Duration ttl) {
+        this.users = newCache(maxSize, ttl);
+        this.provinces = newCache(maxSize, ttl);
+        logger.info("Caché de usuarios y provincias por id: {} entradas como máximo cada una, caducidad {}", maxSize, ttl);
+    }
+
+    private static <V> Cache<Long, V> newCache(long maxSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    @Around("execution(* org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.UsersDAO.getUsersById(..))")
+    public Object getUser(ProceedingJoinPoint joinPoint) throws Throwable {
+        return get(users, usersVersion, Users::copy, joinPoint);
+    }
+
+    @Around("execution(* org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.ProvinceDAO.getProvinceById(..))")
+    public Object getProvince(ProceedingJoinPoint joinPoint) throws Throwable {
+        return get(provinces, provincesVersion, Province::copy, joinPoint);
+    }
+
+    @After("execution(* org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.UsersDAO.update*(..))"
+            + " || execution(* org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.UsersDAO.delete*(..))")
+    public void afterUserWrite(JoinPoint joinPoint) {
+        Set<Long> ids = ids(joinPoint.getArgs()[0]);
+        invalidate(usersVersion, () -> users.invalidateAll(ids));
+    }
+
+    @After("execution(* org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.ProvinceDAO.update*(..))"
+            + " || execution(* org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.ProvinceDAO.delete*(..))")
+    public void afterProvinceWrite(JoinPoint joinPoint) {
+        Set<Long> ids = ids(joinPoint.getArgs()[0]);
+        invalidate(provincesVersion, () -> provinces.invalidateAll(ids));
+    }
+
+    @After("execution(* org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.RegionDAO.update*(..))"
+            + " || execution(* org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.RegionDAO.delete*(..))")
+    public void afterRegionWrite(JoinPoint joinPoint) {
+        Set<Long> regionIds = ids(joinPoint.getArgs()[0]);
+        invalidate(provincesVersion, () -> provinces.asMap().values().removeIf(province ->
+                province.getRegion() != null && regionIds.contains(province.getRegion().getId())));
+    }
+
+    private <V> Object get(Cache<Long, V> cache, AtomicLong version, UnaryOperator<V> copy,
+                           ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!(joinPoint.getArgs()[0] instanceof Long id)
+                || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        V cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return copy.apply(cached);
+        }
+
+        long loadedAt = version.get();
+        @SuppressWarnings("unchecked")
+        V loaded = (V) loadFromPrimary(joinPoint);
+        if (loaded == null) {
+            return null;
+        }
+        cache.put(id, loaded);
+        // Si ha habido una invalidación desde que empezó la carga, la fila puede ser anterior a la
+        // escritura y su invalidación haber llegado antes que el put: se quita
+        if (version.get() != loadedAt) {
+            cache.asMap().remove(id, loaded);
+        }
+        return copy.apply(loaded);
+    }
+
+    private static Object loadFromPrimary(ProceedingJoinPoint joinPoint) throws Throwable {
+        boolean primaryOnly = DataSourceRoute.isPrimaryOnly();
+        DataSourceRoute.setPrimaryOnly(true);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            DataSourceRoute.setPrimaryOnly(primaryOnly);
+        }
+    }
+
+    private static void invalidate(AtomicLong version, Runnable invalidation) {
+        version.incrementAndGet();
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Mientras no hay commit otra petición puede volver a cargar la fila anterior
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    version.incrementAndGet();
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * Ids escritos a partir del primer argumento del método: un id, una entidad o una lista de entidades.
+     */
+    private static Set<Long> ids(Object argument) {
+        Set<Long> ids = new HashSet<>();
+        if (argument instanceof Collection<?> collection) {
+            for (Object item : collection) {
+                addId(ids, item);
+            }
+        } else {
+            addId(ids, argument);
+        }
+        return ids;
+    }
+
+    private static void addId(Set<Long> ids, Object item) {
+        Long id = switch (item) {
+            case Number number -> number.longValue();
+            case Users user -> user.getId();
+            case Province province -> province.getId();
+            case Region region -> region.getId();
+            case null, default -> null;
+        };
+        if (id != null) {
+            ids.add(id);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bind(registry, USERS, users, EntityCache::sizeOf);
+        bind(registry, PROVINCES, provinces, EntityCache::sizeOf);
+    }
+
+    private static <V> void bind(MeterRegistry registry, String name, Cache<Long, V> cache, ToLongFunction<V> sizeOf) {
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+        Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Fracción de lecturas servidas desde la caché")
+                .tag("cache", name)
+                .register(registry);
+        Gauge.builder("cache.memory.estimate", cache, c -> memoryEstimate(c, sizeOf))
+                .description("Memoria aproximada de las entradas de la caché")
+                .baseUnit("bytes")
+                .tag("cache", name)
+                .register(registry);
+    }
+
+    static <V> long memoryEstimate(Cache<Long, V> cache, ToLongFunction<V> sizeOf) {
+        long entries = cache.estimatedSize();
+        if (entries == 0) {
+            return 0;
+        }
+        long sampled = 0;
+        long sampledBytes = 0;
+        Iterator<V> values = cache.asMap().values().iterator();
+        while (sampled < MEMORY_SAMPLE && values.hasNext()) {
+            sampledBytes += ENTRY_OVERHEAD + sizeOf.applyAsLong(values.next());
+            sampled++;
+        }
+        return sampled == 0 ? 0 : sampledBytes * entries / sampled;
+    }
+
+    // Tamaños aproximados en una JVM de 64 bits con compressed oops y cadenas compactas (Latin-1)
+    static long sizeOf(Users user) {
+        return 48 + 16 + sizeOf(user.getUsername()) + sizeOf(user.getPasswordHash())
+                + sizeOf(user.getLastPasswordChange()) + sizeOf(user.getPasswordExpiresAt());
+    }
+
+    static long sizeOf(Province province) {
+        long bytes = 24 + 16 + sizeOf(province.getCode()) + sizeOf(province.getName());
+        Region region = province.getRegion();
+        if (region != null) {
+            bytes += 24 + 16 + sizeOf(region.getCode()) + sizeOf(region.getName());
+        }
+        return bytes;
+    }
+
+    private static long sizeOf(String value) {
+        return value == null ? 0 : 40 + value.length();
+    }
+
+    private static long sizeOf(LocalDateTime value) {
+        // LocalDateTime, LocalDate y LocalTime
+        return value == null ? 0 : 24 + 24 + 24;
+    }
+}
@@ -0,0 +1,22 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.coalescing;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca un método de un DAO que solo lee y cuyas llamadas simultáneas con los mismos argumentos
+ * pueden compartir una única consulta ({@link CoalescingAspect}): la primera la ejecuta y las que
+ * llegan mientras está en curso esperan y reciben el mismo resultado (cada una en una lista no
+ * modificable con sus propias copias de las entidades; la primera, el resultado tal cual).
+ * <p>
+ * Se pone en la clase que implementa el DAO, no en la interfaz.
+ * </p>
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Coalesced {
+}
@@ -0,0 +1,175 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.coalescing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.After;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.config.DaoAspectOrder;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.datasource.DataSourceRoute;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Province;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Region;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Users;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Agrupa las llamadas simultáneas a los métodos {@link Coalesced} (single-flight): si ya hay una
+ * consulta igual en curso, la llamada espera a su resultado en lugar de lanzar otra contra la base
+ * de datos. Así cientos de peticiones a la vez a {@code /provinces} hacen una sola consulta.
+ * <p>
+ * Las consultas en curso se guardan en un {@link ConcurrentHashMap} de futuros, sin bloqueo global,
+ * y se quitan al terminar: no se guarda ningún resultado. Una llamada solo se une a una consulta
+ * igual que:
+ * </p>
+ * <ul>
+ *     <li>haya empezado después de la última escritura en cualquier DAO: el listado que se pinta
+ *     tras una escritura (y se guarda en caché con la nueva versión de la tabla) no puede salir de
+ *     una consulta anterior a ella;</li>
+ *     <li>vaya al mismo origen: una petición fijada al primario
+ *     ({@link DataSourceRoute#isPrimaryOnly()}) no espera a una consulta de la réplica.</li>
+ * </ul>
+ * <p>
+ * La llamada que ejecuta la consulta recibe el resultado tal cual, como sin el aspecto, y en el
+ * caso habitual (nadie se ha unido) no se copia nada. Las que se han unido reciben una lista no
+ * modificable con sus propias copias de las entidades (las provincias de una misma región siguen
+ * compartiendo una única copia de la región), hechas a partir de una copia que nadie más toca:
+ * la primera llamada puede estar modificando su resultado mientras tanto.
+ * </p>
+ * <p>
+ * Dentro de una transacción no se agrupa nada: la transacción debe ver sus propias escrituras.
+ * Las llamadas agrupadas se cuentan en {@code dao.coalesced} (etiquetas {@code dao} y
+ * {@code method}); en {@code dao.calls} solo aparecen las consultas que se ejecutan.
+ * </p>
+ */
+@Aspect
+@Component
+@Order(DaoAspectOrder.COALESCING)
+public class CoalescingAspect {
+
+    private final MeterRegistry registry;
+    private final Map<Flight, Call> inFlight = new ConcurrentHashMap<>();
+    private final Map<Method, Counter> coalesced = new ConcurrentHashMap<>();
+    // Número de escrituras terminadas (bien o con error) en cualquier DAO
+    private final AtomicLong writes = new AtomicLong();
+
+    public CoalescingAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("@annotation(org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.coalescing.Coalesced)")
+    public Object coalesce(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Flight flight = new Flight(joinPoint.getTarget(), method, Arrays.asList(joinPoint.getArgs()),
+                writes.get(), DataSourceRoute.isPrimaryOnly());
+
+        // Las uniones se cuentan dentro de compute, así que al quitar la consulta el número ya no cambia
+        Call call = new Call();
+        Call running = inFlight.compute(flight, (key, current) -> {
+            if (current == null) {
+                return call;
+            }
+            current.joined.incrementAndGet();
+            return current;
+        });
+        if (running != call) {
+            coalesced.computeIfAbsent(method, this::createCounter).increment();
+            try {
+                return copyOf(running.result.join());
+            } catch (CompletionException e) {
+                throw e.getCause();
+            }
+        }
+
+        // Se quita antes de completar: quien llegue después lanza su propia consulta
+        try {
+            Object value = joinPoint.proceed();
+            inFlight.remove(flight, call);
+            call.result.complete(call.joined.get() > 0 ? copyOf(value) : value);
+            return value;
+        } catch (Throwable e) {
+            inFlight.remove(flight, call);
+            call.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // También si la escritura falla: un lote puede fallar con bloques anteriores ya confirmados
+    @After("execution(* org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.*DAO.insert*(..))"
+            + " || execution(* org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.*DAO.update*(..))"
+            + " || execution(* org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.*DAO.delete*(..))")
+    public void afterWrite() {
+        writes.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Hasta el commit las consultas de fuera no ven la escritura
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    writes.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    /**
+     * Copia del resultado para una llamada: las listas se devuelven no modificables y con copias de
+     * las entidades; los demás valores (inmutables) se devuelven tal cual.
+     */
+    static Object copyOf(Object value) {
+        if (!(value instanceof List<?> rows)) {
+            return copyOfRow(value, new IdentityHashMap<>());
+        }
+        Map<Region, Region> regions = new IdentityHashMap<>();
+        List<Object> copies = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            copies.add(copyOfRow(row, regions));
+        }
+        return Collections.unmodifiableList(copies);
+    }
+
+    private static Object copyOfRow(Object row, Map<Region, Region> regions) {
+        return switch (row) {
+            case Province province -> new Province(province.getId(), province.getCode(), province.getName(),
+                    province.getRegion() != null ? regions.computeIfAbsent(province.getRegion(), Region::copy) : null);
+            case Users user -> user.copy();
+            case Region region -> regions.computeIfAbsent(region, Region::copy);
+            case null, default -> row;
+        };
+    }
+
+    private Counter createCounter(Method method) {
+        return Counter.builder("dao.coalesced")
+                .description("Llamadas a los DAOs servidas por una consulta igual que ya estaba en curso")
+                .tags("dao", method.getDeclaringClass().getSimpleName(), "method", method.getName())
+                .register(registry);
+    }
+
+    // Consulta en curso y número de llamadas que se han unido a ella
+    private static final class Call {
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        final AtomicInteger joined = new AtomicInteger();
+    }
+
+    private record Flight(Object dao, Method method, List<Object> args, long writes, boolean primaryOnly) {
+    }
+}
@@ -0,0 +1,37 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.config;
+
+import org.springframework.core.Ordered;
+
+/**
+ * Orden de los aspectos que envuelven a los DAOs ({@code @Order}), de fuera hacia dentro. El de
+ * menor valor envuelve a todos los demás: su consejo {@code @Around} empieza el primero y sus
+ * consejos {@code @After}/{@code @AfterReturning} se ejecutan los últimos.
+ * <ol>
+ *     <li>{@link #SEARCH_INDEX} ({@code SearchIndexUpdater}): actualiza el índice cuando ya han
+ *     terminado los de dentro, así que al volver a leer una fila escrita la caché ya la ha
+ *     invalidado.</li>
+ *     <li>{@link #ENTITY_CACHE} ({@code EntityCache}): un acierto no llega al enrutado ni a las
+ *     métricas, y las cargas se fijan al primario antes de pasar por el enrutado.</li>
+ *     <li>{@link #COALESCING} ({@code CoalescingAspect}): las llamadas agrupadas esperan sin pasar
+ *     por el enrutado ni las métricas; la que ejecuta la consulta sí pasa por ambos.</li>
+ *     <li>{@link #READ_ONLY_ROUTING} ({@code ReadOnlyRoutingAspect}, solo con réplica): elige el
+ *     origen justo antes de la consulta.</li>
+ *     <li>{@link #DAO_METRICS} ({@code DaoMetricsAspect}): el más interno, mide solo las llamadas
+ *     que llegan al DAO.</li>
+ * </ol>
+ * Los valores están separados para poder meter otro aspecto entre dos sin cambiar los demás.
+ * Ninguno puede ser {@code HIGHEST_PRECEDENCE}: {@code ExposeInvocationInterceptor}
+ * ({@code HIGHEST_PRECEDENCE + 1}) tiene que ir por fuera de todos, porque los consejos que
+ * reciben el {@code JoinPoint} leen de él la invocación en curso.
+ */
+public final class DaoAspectOrder {
+
+    public static final int SEARCH_INDEX = Ordered.HIGHEST_PRECEDENCE + 10;
+    public static final int ENTITY_CACHE = SEARCH_INDEX + 10;
+    public static final int COALESCING = ENTITY_CACHE + 10;
+    public static final int READ_ONLY_ROUTING = COALESCING + 10;
+    public static final int DAO_METRICS = READ_ONLY_ROUTING + 10;
+
+    private DaoAspectOrder() {
+    }
+}
@@ -0,0 +1,82 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.datasource.PrimaryStickinessInterceptor;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.datasource.ReadOnly;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.datasource.ReadOnlyRoutingAspect;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.datasource.ReadWriteRoutingDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+/**
+ * Réplica de lectura de MariaDB. Solo se activa con {@code app.datasource.replica.jdbc-url}; sin
+ * ella la aplicación usa el {@code DataSource} que crea Spring Boot con {@code spring.datasource.*}.
+ * <p>
+ * Con réplica hay dos pools de Hikari: el primario ({@code spring.datasource.*} y
+ * {@code spring.datasource.hikari.*}, igual que sin réplica) y el de la réplica
+ * ({@code app.datasource.replica.*}: {@code jdbc-url}, {@code username}, {@code password},
+ * {@code maximum-pool-size}...). El {@code DataSource} principal, el que usan {@code JdbcTemplate},
+ * las transacciones y la carga de {@code schema.sql}, es un {@link ReadWriteRoutingDataSource}
+ * que va al primario salvo en los métodos {@link ReadOnly} de los DAOs.
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.replica", name = "jdbc-url")
+public class ReadReplicaConfig implements WebMvcConfigurer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadReplicaConfig.class);
+
+    @Value("${app.datasource.read-your-writes-seconds:5}")
+    private int readYourWritesSeconds;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Pool de la réplica. Usa el mismo driver que el primario y sus conexiones son de solo lectura,
+     * así que una escritura enviada por error a la réplica falla en lugar de desincronizarla.
+     */
+    @Bean
+    @ConfigurationProperties("app.datasource.replica")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties) {
+        HikariDataSource replica = new HikariDataSource();
+        replica.setDriverClassName(properties.determineDriverClassName());
+        replica.setPoolName("ticket-logger-replica");
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") HikariDataSource primary,
+                                 @Qualifier("replicaDataSource") HikariDataSource replica) {
+        logger.info("Réplica de lectura activada: los métodos @ReadOnly de los DAOs usan el pool '{}'; "
+                + "lectura del primario durante {} s tras cada POST", replica.getPoolName(), readYourWritesSeconds);
+        return new ReadWriteRoutingDataSource(primary, replica);
+    }
+
+    @Bean
+    public ReadOnlyRoutingAspect readOnlyRoutingAspect() {
+        return new ReadOnlyRoutingAspect();
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new PrimaryStickinessInterceptor(readYourWritesSeconds));
+    }
+}
@@ -0,0 +1,137 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.asm.ClassReader;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Informe de arranque del modo de hilos virtuales ({@code spring.threads.virtual.enabled}).
+ * <p>
+ * Indica si Tomcat y las tareas asíncronas se ejecutan en hilos virtuales, cómo está
+ * dimensionado el pool de Hikari frente a las conexiones que acepta Tomcat y si algún DAO
+ * ({@code @Repository}) usa {@code synchronized}: en Java 21 un hilo virtual que espera a
+ * JDBC dentro de un bloque o método {@code synchronized} queda "clavado" a su hilo de
+ * plataforma y deja de escalar. Los bloques {@code synchronized} se detectan leyendo el
+ * bytecode de la clase (instrucción {@code monitorenter}).
+ * </p>
+ */
+@Component
+public class VirtualThreadsReport {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadsReport.class);
+
+    private final ApplicationContext applicationContext;
+    private final Environment environment;
+    private final ObjectProvider<DataSource> dataSource;
+
+    public VirtualThreadsReport(ApplicationContext applicationContext, Environment environment,
+                                ObjectProvider<DataSource> dataSource) {
+        this.applicationContext = applicationContext;
+        this.environment = environment;
+        this.dataSource = dataSource;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report() {
+        boolean virtual = Threading.VIRTUAL.isActive(environment);
+        int maxConnections = environment.getProperty("server.tomcat.max-connections", Integer.class, 8192);
+        logger.info("Hilos virtuales: {} (Tomcat max-connections: {})", virtual ? "activados" : "desactivados", maxConnections);
+
+        // Con réplica de lectura (ReadReplicaConfig) hay dos pools: primario y réplica
+        dataSource.orderedStream()
+                .filter(HikariDataSource.class::isInstance)
+                .map(HikariDataSource.class::cast)
+                .forEach(hikari -> {
+                    logger.info("Pool Hikari '{}': maximumPoolSize={}, connectionTimeout={} ms",
+                            hikari.getPoolName(), hikari.getMaximumPoolSize(), hikari.getConnectionTimeout());
+                    if (virtual && hikari.getConnectionTimeout() > 10_000) {
+                        logger.warn("Con hilos virtuales conviene un connectionTimeout corto: las peticiones que no consiguen "
+                                + "conexión esperan hasta {} ms en lugar de fallar rápido", hikari.getConnectionTimeout());
+                    }
+                });
+
+        List<String> pinningRisks = findSynchronizedInRepositories();
+        if (pinningRisks.isEmpty()) {
+            logger.info("Ningún @Repository usa synchronized: el acceso JDBC no clava hilos virtuales");
+        } else if (virtual) {
+            pinningRisks.forEach(risk -> logger.warn("Posible pinning de hilos virtuales: {}", risk));
+        } else {
+            pinningRisks.forEach(risk -> logger.info("synchronized en un @Repository: {}", risk));
+        }
+
+        if (virtual && System.getProperty("jdk.tracePinnedThreads") == null) {
+            logger.info("Para registrar en tiempo de ejecución los hilos virtuales clavados, arrancar con "
+                    + "-Djdk.tracePinnedThreads=short");
+        }
+    }
+
+    /**
+     * @return una descripción por cada método {@code synchronized} o con bloque {@code synchronized}
+     *         en las clases anotadas con {@link Repository}
+     */
+    List<String> findSynchronizedInRepositories() {
+        List<String> risks = new ArrayList<>();
+        for (Object bean : applicationContext.getBeansWithAnnotation(Repository.class).values()) {
+            Class<?> type = AopUtils.getTargetClass(bean);
+            String resource = type.getName().replace('.', '/') + ".class";
+            try (InputStream in = type.getClassLoader().getResourceAsStream(resource)) {
+                if (in == null) {
+                    continue;
+                }
+                new ClassReader(in).accept(new SynchronizedFinder(type.getSimpleName(), risks), ClassReader.SKIP_DEBUG);
+            } catch (IOException e) {
+                logger.debug("No se ha podido leer el bytecode de {}: {}", type.getName(), e.getMessage());
+            }
+        }
+        return risks;
+    }
+
+    private static final class SynchronizedFinder extends ClassVisitor {
+
+        private final String className;
+        private final List<String> risks;
+
+        SynchronizedFinder(String className, List<String> risks) {
+            super(Opcodes.ASM9);
+            this.className = className;
+            this.risks = risks;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            if ((access & Opcodes.ACC_SYNCHRONIZED) != 0) {
+                risks.add(className + "." + name + " es un método synchronized");
+            }
+            return new MethodVisitor(Opcodes.ASM9) {
+                private boolean reported;
+
+                @Override
+                public void visitInsn(int opcode) {
+                    if (opcode == Opcodes.MONITORENTER && !reported) {
+                        reported = true;
+                        risks.add(className + "." + name + " contiene un bloque synchronized");
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.controllers;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.support.RequestContextUtils;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * ETags de los listados (regiones, provincias y usuarios), calculados a partir de la versión
+ * de las tablas que muestran ({@code getVersion()} de los DAOs) y del idioma, sin consultar la
+ * base de datos ni renderizar la vista.
+ * <p>
+ * Las versiones empiezan en 0 en cada arranque, así que el ETag incluye además un identificador
+ * del proceso: tras un reinicio ningún ETag antiguo vuelve a ser válido. Las respuestas llevan
+ * {@code Cache-Control: private, no-cache}: el navegador guarda la página pero la revalida en
+ * cada visita, y los proxies compartidos no la guardan (el idioma va en la sesión).
+ * </p>
+ * <p>
+ * Como la versión cuenta las escrituras del primario, los datos de una página con ETag se leen
+ * del primario ({@code DataSourceRoute.onPrimary}): leídos de una réplica con retraso, la página
+ * antigua quedaría validada con la versión nueva, también en el navegador (304), hasta la
+ * siguiente escritura.
+ * </p>
+ * <p>
+ * Si la petición trae mensajes flash (la redirección tras insertar, editar o importar), la página
+ * no es la misma que la guardada y se genera siempre, sin ETag.
+ * </p>
+ */
+final class ListETags {
+
+    private static final String PROCESS_ID = Long.toString(System.currentTimeMillis(), 36);
+
+    private ListETags() {
+    }
+
+    /**
+     * Construye el ETag fuerte de un listado.
+     *
+     * @param locale idioma de la página
+     * @param parts versiones de las tablas y parámetros de la petición que cambian el contenido
+     * @return ETag entre comillas
+     */
+    static String of(Locale locale, Object... parts) {
+        StringBuilder etag = new StringBuilder("\"").append(PROCESS_ID).append('-').append(locale.toLanguageTag());
+        for (Object part : parts) {
+            // Los textos de búsqueda pueden traer comillas o caracteres fuera de ASCII, no válidos en un ETag
+            etag.append('-').append(URLEncoder.encode(String.valueOf(part), StandardCharsets.UTF_8));
+        }
+        return etag.append('"').toString();
+    }
+
+    /**
+     * Comprueba {@code If-None-Match} contra el ETag y añade las cabeceras de caché.
+     *
+     * @return {@code true} si la respuesta ya es un 304 y el controlador no tiene que hacer nada más
+     */
+    static boolean checkNotModified(NativeWebRequest request, String etag) {
+        request.getNativeResponse(HttpServletResponse.class)
+                .setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        Map<String, ?> flash = RequestContextUtils.getInputFlashMap(request.getNativeRequest(HttpServletRequest.class));
+        if (flash != null && !flash.isEmpty()) {
+            return false;
+        }
+        return request.checkNotModified(etag);
+    }
+
+    /**
+     * Marca como no almacenable una respuesta que ya lleva ETag pero no se debe reutilizar
+     * (por ejemplo, la página con el error de un listado que ha fallado).
+     */
+    static void discard(NativeWebRequest request) {
+        request.getNativeResponse(HttpServletResponse.class).setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+    }
+}
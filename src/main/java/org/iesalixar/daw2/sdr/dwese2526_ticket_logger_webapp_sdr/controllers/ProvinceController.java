@@ -3,23 +3,42 @@ package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.controllers;
 
 
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.csv.CsvBatchImporter;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.csv.CsvImportReport;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.csv.CsvRecord;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.csv.CsvResponses;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Region;
 import org.springframework.ui.Model;
-import com.fasterxml.jackson.annotation.JacksonAnnotationsInside;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.ProvinceDAO;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.RegionDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.WriteOutcome;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.datasource.DataSourceRoute;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Province;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.views.RenderedFragmentCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 @Controller
 @RequestMapping("/provinces")
@@ -35,15 +54,76 @@ public class ProvinceController {
     @Autowired
     private RegionDAO regionDAO;
 
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RenderedFragmentCache fragmentCache;
+
+    @Autowired
+    private ProvinceFormLoader provinceFormLoader;
+
+    // Resultados como máximo de una búsqueda en el listado
+    static final int SEARCH_LIMIT = 50;
+
+    @Value("${app.jdbc.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.csv.export-timeout:30m}")
+    private Duration exportTimeout;
+
+    /**
+     * Muestra la lista de provincias. El ETag depende también de la versión de las regiones,
+     * porque cada fila muestra el nombre de su región.
+     * <p>
+     * Con {@code q} y/o {@code region} muestra solo las provincias cuyo nombre o código empieza
+     * por {@code q} (de esa región), hasta {@link #SEARCH_LIMIT}. Los resultados de búsqueda no
+     * se guardan en {@link RenderedFragmentCache}.
+     * </p>
+     */
     @GetMapping
-    public String listProvinces(Model model, Locale locale){
-        logger.info("Solicitando la lista de todas las provincias");
+    public String listProvinces(@RequestParam(value = "q", required = false) String q,
+                                @RequestParam(value = "region", required = false) Long region,
+                                Model model, Locale locale, NativeWebRequest request){
+        long provinceVersion = provinceDAO.getVersion();
+        long regionVersion = regionDAO.getVersion();
+        boolean search = (q != null && !q.isBlank()) || region != null;
+        String etag = search
+                ? ListETags.of(locale, provinceVersion, regionVersion, q, region)
+                : ListETags.of(locale, provinceVersion, regionVersion);
+        if (ListETags.checkNotModified(request, etag)) {
+            return null;
+        }
+        model.addAttribute("q", q);
+        model.addAttribute("region", region);
         try{
-            List<Province> listProvinces = provinceDAO.listAllProvinces();
-            logger.info("Se han cargado {} provincies.", listProvinces.size());
-            model.addAttribute("listProvinces", listProvinces);
+            model.addAttribute("listRegions", provinceFormLoader.regionOptions());
+            if (search) {
+                logger.info("Buscando provincias (q: {}, region: {})", q, region);
+                // Del primario, como todo lo que va detrás de un ETag (ver ListETags)
+                List<Province> listProvinces = DataSourceRoute.onPrimary(
+                        () -> provinceDAO.searchProvinces(q, region, SEARCH_LIMIT));
+                model.addAttribute("searchLimitReached", listProvinces.size() == SEARCH_LIMIT);
+                model.addAttribute("searchLimit", SEARCH_LIMIT);
+                model.addAttribute("rowsHtml", fragmentCache.render("views/province/province-rows", "rows", locale,
+                        Map.of("listProvinces", listProvinces), request));
+                return "views/province/province-list";
+            }
+            logger.info("Solicitando la lista de todas las provincias");
+            String rowsHtml = fragmentCache.getOrRender(
+                    new RenderedFragmentCache.Key("provinces", provinceVersion + "." + regionVersion, locale),
+                    "views/province/province-rows", "rows", () -> {
+                        List<Province> listProvinces = provinceDAO.listAllProvinces();
+                        logger.info("Se han cargado {} provincias.", listProvinces.size());
+                        return Map.of("listProvinces", listProvinces);
+                    }, request);
+            model.addAttribute("rowsHtml", rowsHtml);
         } catch (Exception e) {
             logger.error("Error al insertar las provincias: {}", e.getMessage());
+            ListETags.discard(request);
             String errorMessage = messageSource.getMessage("msg.province-controller.list.error" ,null, locale);
             model.addAttribute("errorMessage", errorMessage);
         }
@@ -54,9 +134,7 @@ public class ProvinceController {
     public String showNewForm( Model model, Locale locale){
         logger.info("Entrando al metodo showNewForm");
         try{
-            List<Region> listRegions =regionDAO.listAllRegions();
-            model.addAttribute("province" , new Province());
-            model.addAttribute("listRegions", listRegions);
+            provinceFormLoader.populate(new Province(), model);
         }catch (Exception e){
             logger.error("Error al cargar las regiones para el formulario de provincia: {}", e.getMessage());
             String errorMessage = messageSource.getMessage("msg.province-controller.edit.error", null, locale);
@@ -87,19 +165,16 @@ public class ProvinceController {
         try {
             if (result.hasErrors()) {
                 // Volvemos a cargar las regiones para el select cuando hay errores
-                List<Region> listRegions = regionDAO.listAllRegions();
-                model.addAttribute("listRegions", listRegions);
+                provinceFormLoader.populate(province, model);
                 return "views/province/province-form";
             }
 
-            if (provinceDAO.existsProvinceByCode(province.getCode())) {
+            if (provinceDAO.insertProvince(province) == WriteOutcome.DUPLICATE) {
                 logger.warn("El código de la provincia {} ya existe", province.getCode());
                 String errorMessage = messageSource.getMessage("msg.province-controller.insert.codeExist", null, locale);
                 redirectAttributes.addFlashAttribute("errorMessage", errorMessage);
                 return "redirect:/provinces/new";
             }
-
-            provinceDAO.insertProvince(province);
             logger.info("Provincia {} insertada con éxito.", province.getCode());
 
         } catch (Exception e) {
@@ -122,16 +197,10 @@ public class ProvinceController {
     public String showEditForm(@RequestParam("id") Long id, Model model, Locale locale){
         logger.info("Mostrando formulario de edicion para la provincia con ID: {}", id);
         try{
-            Province province = provinceDAO.getProvinceById(id);
-            if (province==null){
+            if (!provinceFormLoader.loadForEdit(id, model)){
                 logger.warn("No se ha encontrado ninguna provincia con id: {}", id);
                 String errorMessage = messageSource.getMessage("msg.province-controller.edit.notfound", null, locale);
                 model.addAttribute("errorMessage", errorMessage);
-
-            }else {
-                List<Region> listRegions = regionDAO.listAllRegions();
-                model.addAttribute("province", province);
-                model.addAttribute("listRegions", listRegions);
             }
         } catch (Exception e) {
             logger.error("Erroe al obtener la provincia con id: {}, {}", id, e.getMessage());
@@ -163,19 +232,16 @@ public class ProvinceController {
         try {
             if (result.hasErrors()) {
                 // Volvemos a cargar las regiones para el select cuando hay errores
-                List<Region> listRegions = regionDAO.listAllRegions();
-                model.addAttribute("listRegions", listRegions);
-                return "views/provinces/province-form";
+                provinceFormLoader.populate(province, model);
+                return "views/province/province-form";
             }
 
-            if (provinceDAO.existsProvinceByCodeAndNotId(province.getCode(), province.getId())) {
+            if (provinceDAO.updateProvince(province) == WriteOutcome.DUPLICATE) {
                 logger.warn("El código de la provincia {} ya existe para otra provincia.", province.getCode());
                 String errorMessage = messageSource.getMessage("msg.province-controller.update.codeExist", null, locale);
                 redirectAttributes.addFlashAttribute("errorMessage", errorMessage);
-                return "redirect:/provinces/edit/?id=" + province.getId();
+                return "redirect:/provinces/edit?id=" + province.getId();
             }
-
-            provinceDAO.updateProvince(province);
             logger.info("Provincia con ID {} actualizada con éxito.", province.getId());
 
         } catch (Exception e) {
@@ -212,4 +278,65 @@ public class ProvinceController {
 
         return "redirect:/provinces";
     }
+
+    /**
+     * Descarga todas las provincias (con su comunidad autónoma) en CSV, escribiendo las
+     * filas según se leen del cursor JDBC.
+     *
+     * @return respuesta {@code text/csv} escrita en streaming.
+     */
+    @GetMapping("/export.csv")
+    public ResponseEntity<StreamingResponseBody> exportProvinces() {
+        logger.info("Exportando provincias a CSV");
+        return CsvResponses.attachment("provinces.csv", exportTimeout, csv -> {
+            csv.writeRow("id", "code", "name", "region_id", "region_code", "region_name");
+            provinceDAO.forEachProvince(province -> csv.writeRow(province.getId(), province.getCode(),
+                    province.getName(), province.getRegion().getId(), province.getRegion().getCode(),
+                    province.getRegion().getName()));
+        });
+    }
+
+    /**
+     * Importa provincias desde un CSV con las columnas {@code code}, {@code name} y
+     * {@code region_id} (el mismo formato que genera la exportación, cuyas columnas extra
+     * se ignoran). Se inserta por lotes y las filas rechazadas se informan en el listado.
+     *
+     * @param file fichero CSV (UTF-8) con cabecera.
+     * @param redirectAttributes atributos para mensajes flash.
+     * @param locale configuración regional actual.
+     * @return redirección al listado de provincias.
+     */
+    @PostMapping("/import")
+    public String importProvinces(@RequestParam("file") MultipartFile file,
+                                  RedirectAttributes redirectAttributes,
+                                  Locale locale) {
+        logger.info("Importando provincias desde el fichero {}", file.getOriginalFilename());
+        CsvBatchImporter<Province> importer = new CsvBatchImporter<>(
+                List.of("code", "name", "region_id"), this::parseProvince,
+                provinceDAO::insertProvinces, provinceDAO::insertProvince, batchSize, transactionTemplate);
+        try (Reader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)) {
+            CsvImportReport report = importer.importFrom(reader);
+            logger.info("Importación de provincias terminada: {} importadas, {} con errores.",
+                    report.getImported(), report.getFailed());
+            redirectAttributes.addFlashAttribute("successMessage", messageSource.getMessage(
+                    "msg.csv.import.result", new Object[]{report.getImported(), report.getFailed()}, locale));
+            redirectAttributes.addFlashAttribute("importErrors", report.getErrors());
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Error al importar provincias: {}", e.getMessage());
+            redirectAttributes.addFlashAttribute("errorMessage",
+                    messageSource.getMessage("msg.csv.import.error", new Object[]{e.getMessage()}, locale));
+        }
+        return "redirect:/provinces";
+    }
+
+    private Province parseProvince(CsvRecord record) {
+        long regionId = record.getRequiredLong("region_id");
+        // Las regiones se leen de la caché en memoria del DAO, no cuesta una consulta por fila
+        Region region = regionDAO.getRegionById(regionId);
+        if (region == null) {
+            throw new IllegalArgumentException("No existe la comunidad autónoma con id " + regionId);
+        }
+        Province province = new Province(record.get("code"), record.get("name"), region);
+        return CsvBatchImporter.requireValid(validator, province);
+    }
 }
@@ -0,0 +1,73 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.controllers;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.ProvinceDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.RegionDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Province;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Region;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.ui.Model;
+import org.springframework.web.context.annotation.RequestScope;
+
+import java.util.List;
+
+/**
+ * Carga el modelo del formulario de provincias ({@code views/province/province-form}): la provincia
+ * y las regiones del desplegable.
+ * <p>
+ * Las regiones salen de la instantánea en memoria de {@code RegionDaoImpl}, así que editar una
+ * provincia cuesta una sola consulta (la de la provincia). Además se recuerdan durante la petición
+ * (el bean es de ámbito petición): ningún manejador pide las regiones dos veces aunque la
+ * instantánea no esté cargada y haya que ir a la base de datos.
+ * </p>
+ */
+@Component
+@RequestScope
+public class ProvinceFormLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProvinceFormLoader.class);
+
+    private final ProvinceDAO provinceDAO;
+    private final RegionDAO regionDAO;
+
+    private List<Region> regions;
+
+    public ProvinceFormLoader(ProvinceDAO provinceDAO, RegionDAO regionDAO) {
+        this.provinceDAO = provinceDAO;
+        this.regionDAO = regionDAO;
+    }
+
+    /**
+     * @return las regiones del desplegable, cargadas como mucho una vez por petición
+     */
+    public List<Region> regionOptions() {
+        if (regions == null) {
+            regions = regionDAO.listAllRegions();
+            logger.debug("Cargadas {} regiones para el formulario de provincia", regions.size());
+        }
+        return regions;
+    }
+
+    /**
+     * Añade al modelo la provincia con el id indicado y las regiones.
+     *
+     * @return {@code false} si la provincia no existe (el modelo no se modifica)
+     */
+    public boolean loadForEdit(Long id, Model model) {
+        Province province = provinceDAO.getProvinceById(id);
+        if (province == null) {
+            return false;
+        }
+        populate(province, model);
+        return true;
+    }
+
+    /**
+     * Añade al modelo la provincia (nueva o con los datos enviados) y las regiones.
+     */
+    public void populate(Province province, Model model) {
+        model.addAttribute("province", province);
+        model.addAttribute("listRegions", regionOptions());
+    }
+}
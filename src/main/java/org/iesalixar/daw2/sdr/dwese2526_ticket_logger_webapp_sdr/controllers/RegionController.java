@@ -1,24 +1,43 @@
 package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.controllers;
 
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.csv.CsvBatchImporter;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.csv.CsvImportReport;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.csv.CsvRecord;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.csv.CsvResponses;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
 import org.springframework.data.relational.core.sql.SQL;
 import org.springframework.ui.Model;
 import org.apache.catalina.LifecycleState;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.RegionDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.WriteOutcome;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Region;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.views.RenderedFragmentCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.awt.*;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 
 @Controller
@@ -33,18 +52,47 @@ public class RegionController {
     @Autowired
     private MessageSource messageSource;
 
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RenderedFragmentCache fragmentCache;
+
+    @Value("${app.jdbc.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.csv.export-timeout:30m}")
+    private Duration exportTimeout;
+
+    /**
+     * Muestra la lista de regiones. Si el navegador ya tiene la página de la versión actual
+     * (cabecera {@code If-None-Match}) responde 304 sin consultar la base de datos; si no, las
+     * filas salen de {@link RenderedFragmentCache} mientras no cambien las regiones.
+     */
     @GetMapping
-    public String listRegions(Model model) {
+    public String listRegions(Model model, NativeWebRequest request, Locale locale) {
+        long version = regionDAO.getVersion();
+        if (ListETags.checkNotModified(request, ListETags.of(locale, version))) {
+            return null;
+        }
         logger.info("Solicitando la lista de todas las regiones...");
-        List<Region> listRegions = null;
         try {
-            listRegions = regionDAO.listAllRegions();
-            logger.info("Se han devuelto {} regions.", listRegions.size());
+            String rowsHtml = fragmentCache.getOrRender(
+                    new RenderedFragmentCache.Key("regions", Long.toString(version), locale),
+                    "views/region/region-rows", "rows", () -> {
+                        List<Region> listRegions = regionDAO.listAllRegions();
+                        logger.info("Se han devuelto {} regions.", listRegions.size());
+                        return Map.of("listRegions", listRegions);
+                    }, request);
+            model.addAttribute("rowsHtml", rowsHtml);
         } catch (Exception e) {
             logger.error("Error al listar las regiones: {}", e.getMessage());
+            ListETags.discard(request);
             model.addAttribute("errorMessage", "Error al listar las regiones");
         }
-        model.addAttribute("listRegions", listRegions);
         return "views/region/region-list";
 
 
@@ -65,13 +113,12 @@ public class RegionController {
             if (result.hasErrors()) {
                 return "region-form";  // Devuelve el formulario para mostrar los errores de validación
             }
-            if (regionDAO.existsRegionByCode(region.getCode())) {
+            if (regionDAO.insertRegion(region) == WriteOutcome.DUPLICATE) {
                 logger.warn("El código de la región {} ya existe.", region.getCode());
                 String errorMessage = messageSource.getMessage("msg.region-controller.insert.codeExist", null, locale);
                 redirectAttributes.addFlashAttribute("errorMessage", errorMessage);
                 return "redirect:/regions/new";
             }
-            regionDAO.insertRegion(region);
             logger.info("Región {} insertada con éxito.", region.getCode());
         } catch (Exception e) {
             logger.error("Error al insertar la región {}: {}", region.getCode(), e.getMessage());
@@ -96,13 +143,12 @@ public class RegionController {
             if (result.hasErrors()) {
                 return "region-form";  // Devuelve el formulario para mostrar los errores de validación
             }
-            if (regionDAO.existsRegionByCodeAndNotId(region.getCode(), region.getId())) {
+            if (regionDAO.updateRegion(region) == WriteOutcome.DUPLICATE) {
                 logger.warn("El código de la región {} ya existe para otra región.", region.getCode());
                 String errorMessage = messageSource.getMessage("msg.region-controller.update.codeExist", null, locale);
                 redirectAttributes.addFlashAttribute("errorMessage", errorMessage);
                 return "redirect:/regions/edit?id=" + region.getId();
             }
-            regionDAO.updateRegion(region);
             logger.info("Región con ID {} actualizada con éxito.", region.getId());
         } catch (Exception e) {
             logger.error("Error al actualizar la región con ID {}: {}", region.getId(), e.getMessage());
@@ -157,34 +203,54 @@ public class RegionController {
         }
         return "redirect:/regions";
     }
-
-}
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
 
 
+    /**
+     * Descarga todas las regiones en CSV, escribiendo las filas según se leen del cursor JDBC.
+     *
+     * @return respuesta {@code text/csv} escrita en streaming.
+     */
+    @GetMapping("/export.csv")
+    public ResponseEntity<StreamingResponseBody> exportRegions() {
+        logger.info("Exportando regiones a CSV");
+        return CsvResponses.attachment("regions.csv", exportTimeout, csv -> {
+            csv.writeRow("id", "code", "name");
+            regionDAO.forEachRegion(region -> csv.writeRow(region.getId(), region.getCode(), region.getName()));
+        });
+    }
 
+    /**
+     * Importa regiones desde un CSV con las columnas {@code code} y {@code name}, por lotes.
+     * Las filas rechazadas se informan en el listado.
+     *
+     * @param file                fichero CSV (UTF-8) con cabecera.
+     * @param redirectAttributes  atributos para mensajes flash de redirección.
+     * @return redirección a la lista de regiones.
+     */
+    @PostMapping("/import")
+    public String importRegions(@RequestParam("file") MultipartFile file, RedirectAttributes redirectAttributes, Locale locale) {
+        logger.info("Importando regiones desde el fichero {}", file.getOriginalFilename());
+        CsvBatchImporter<Region> importer = new CsvBatchImporter<>(
+                List.of("code", "name"), this::parseRegion,
+                regionDAO::insertRegions, regionDAO::insertRegion, batchSize, transactionTemplate);
+        try (Reader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)) {
+            CsvImportReport report = importer.importFrom(reader);
+            logger.info("Importación de regiones terminada: {} importadas, {} con errores.",
+                    report.getImported(), report.getFailed());
+            redirectAttributes.addFlashAttribute("successMessage", messageSource.getMessage(
+                    "msg.csv.import.result", new Object[]{report.getImported(), report.getFailed()}, locale));
+            redirectAttributes.addFlashAttribute("importErrors", report.getErrors());
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Error al importar regiones: {}", e.getMessage());
+            redirectAttributes.addFlashAttribute("errorMessage",
+                    messageSource.getMessage("msg.csv.import.error", new Object[]{e.getMessage()}, locale));
+        }
+        return "redirect:/regions";
+    }
 
+    private Region parseRegion(CsvRecord record) {
+        Region region = new Region(record.get("code"), record.get("name"));
+        return CsvBatchImporter.requireValid(validator, region);
+    }
 
+}
@@ -0,0 +1,58 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.controllers;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.search.SearchHit;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.search.SearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Búsqueda de texto en regiones, provincias y usuarios ({@link SearchIndex}): sin distinguir
+ * tildes ni mayúsculas, por prefijo y tolerando erratas.
+ */
+@Controller
+@RequestMapping("/search")
+public class SearchController {
+    private static final Logger logger = LoggerFactory.getLogger(SearchController.class);
+
+    // Resultados como máximo de una búsqueda
+    static final int SEARCH_LIMIT = 50;
+
+    @Autowired
+    private MessageSource messageSource;
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @GetMapping
+    public String search(@RequestParam(value = "q", required = false) String q,
+                         @RequestParam(value = "type", required = false) SearchHit.Type type,
+                         Model model, Locale locale) {
+        model.addAttribute("q", q);
+        model.addAttribute("type", type);
+        model.addAttribute("types", SearchHit.Type.values());
+        if (q == null || q.isBlank()) {
+            return "views/search/search-results";
+        }
+        try {
+            List<SearchHit> hits = searchIndex.search(q, type, SEARCH_LIMIT);
+            logger.info("Búsqueda '{}' (tipo: {}): {} resultados", q, type, hits.size());
+            model.addAttribute("hits", hits);
+            model.addAttribute("searchLimitReached", hits.size() == SEARCH_LIMIT);
+            model.addAttribute("searchLimit", SEARCH_LIMIT);
+        } catch (RuntimeException e) {
+            logger.error("Error al buscar '{}': {}", q, e.getMessage());
+            model.addAttribute("errorMessage", messageSource.getMessage("msg.search.error", null, locale));
+        }
+        return "views/search/search-results";
+    }
+}
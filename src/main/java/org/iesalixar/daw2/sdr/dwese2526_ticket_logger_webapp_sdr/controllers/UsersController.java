@@ -1,19 +1,38 @@
 package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.controllers;
 
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.csv.CsvBatchImporter;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.csv.CsvImportReport;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.csv.CsvRecord;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.csv.CsvResponses;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.UsersDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.WriteOutcome;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.datasource.DataSourceRoute;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.UserListItem;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Users;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Locale;
@@ -35,33 +54,99 @@ public class UsersController {
 
     private static final Logger logger = LoggerFactory.getLogger(UsersController.class);
 
+    // Tamaño de página por defecto y máximo permitido para el listado de usuarios
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+
     @Autowired
     private UsersDAO usersDAO;
 
     @Autowired
     private MessageSource messageSource; // Para mensajes de internacionalización/error
 
+    @Autowired
+    private Validator validator; // Validación de las filas importadas desde CSV
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.jdbc.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.csv.export-timeout:30m}")
+    private Duration exportTimeout;
+
     // --- MÉTODOS GET: LISTAR, NUEVO, EDITAR ---
 
     /**
-     * Muestra la lista de todos los usuarios. (Equivalente a doGet, action=list)
-     * URL: /users
+     * Muestra una página de la lista de usuarios. (Equivalente a doGet, action=list)
+     * URL: /users?after=X&size=Y&sort=id|username
+     * <p>
+     * Se usa paginación por clave: {@code after} es el id del último usuario de la página
+     * anterior ({@code afterUsername}, su username, si se ordena por username), de modo que el
+     * coste de la petición depende del tamaño de página y no del número total de usuarios.
+     * </p>
      *
+     * @param after Id del último usuario mostrado en la página anterior (opcional).
+     * @param afterUsername Username del último usuario mostrado en la página anterior, al ordenar por username (opcional).
+     * @param size Número de usuarios por página.
+     * @param sort Campo de ordenación: {@code id} (por defecto) o {@code username}.
+     * @param q Si se indica, solo los usuarios cuyo username empieza por este texto (hasta {@code size}).
      * @param model El objeto Model para pasar datos a la vista.
-     * @return La ruta a la vista JSP de lista de usuarios.
+     * @param request Petición, para responder 304 si la página no ha cambiado (ETag).
+     * @param locale Idioma de la página.
+     * @return La ruta a la vista JSP de lista de usuarios, o {@code null} si se responde 304.
      */
     @GetMapping
-    public String listUsers(Model model) {
-        logger.info(" Solicitando la lista de todos los usuarios...");
-        List<Users> listUsers = null;
+    public String listUsers(@RequestParam(value = "after", required = false) Long after,
+                            @RequestParam(value = "afterUsername", required = false) String afterUsername,
+                            @RequestParam(value = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                            @RequestParam(value = "sort", defaultValue = "id") String sort,
+                            @RequestParam(value = "q", required = false) String q,
+                            Model model, NativeWebRequest request, Locale locale) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        boolean sortByUsername = "username".equalsIgnoreCase(sort);
+        boolean search = q != null && !q.isBlank();
+        // El cursor de la página: el id o, ordenando por username, el username
+        Object cursor = sortByUsername ? afterUsername : after;
+        String etag = search
+                ? ListETags.of(locale, usersDAO.getVersion(), pageSize, "q", q)
+                : ListETags.of(locale, usersDAO.getVersion(), cursor, pageSize, sortByUsername ? "username" : "id");
+        if (ListETags.checkNotModified(request, etag)) {
+            return null;
+        }
+        logger.info(" Solicitando una página de usuarios (after: {}, size: {}, sort: {}, q: {})...", cursor, size, sort, q);
+        List<UserListItem> listUsers = null;
+        Object nextAfter = null;
         try {
-            listUsers = usersDAO.listAllUsers();
+            if (search) {
+                // La búsqueda por prefijo no se pagina: se muestran los primeros pageSize por username
+                // Del primario, como todo lo que va detrás de un ETag (ver ListETags)
+                listUsers = DataSourceRoute.onPrimary(() -> usersDAO.searchUsersByUsernamePrefix(q, pageSize));
+                model.addAttribute("searchLimitReached", listUsers.size() == pageSize);
+            } else {
+                // Pedimos un registro de más para saber si existe una página siguiente
+                listUsers = DataSourceRoute.onPrimary(() -> sortByUsername
+                        ? usersDAO.listUsersPageByUsername(afterUsername, pageSize + 1)
+                        : usersDAO.listUsersPage(after, pageSize + 1));
+                if (listUsers.size() > pageSize) {
+                    listUsers = listUsers.subList(0, pageSize);
+                    UserListItem last = listUsers.get(pageSize - 1);
+                    nextAfter = sortByUsername ? last.username() : last.id();
+                }
+            }
             logger.info("Se han devuelto {} usuarios.", listUsers.size());
         } catch (Exception e) {
             logger.error(" Error al listar los usuarios: {}", e.getMessage());
+            ListETags.discard(request);
             model.addAttribute("errorMessage", "Error al listar los usuarios.");
         }
         model.addAttribute("listUsers", listUsers);
+        model.addAttribute("after", cursor);
+        model.addAttribute("nextAfter", nextAfter);
+        model.addAttribute("pageSize", pageSize);
+        model.addAttribute("sort", sortByUsername ? "username" : "id");
+        model.addAttribute("q", search ? q : null);
         return "views/users/user-list";
     }
 
@@ -131,16 +216,6 @@ public class UsersController {
         }
 
         try {
-            // **Validación de unicidad de username**
-            if (usersDAO.existsUserByUsername(user.getUsername())) {
-                logger.warn("El username {} ya existe.", user.getUsername());
-                // Usar messageSource para el mensaje de error si está configurado
-                // String errorMessage = messageSource.getMessage("msg.user-controller.insert.usernameExist", null, locale);
-                redirectAttributes.addFlashAttribute("errorMessage", "El username ya existe. Por favor, elija otro.");
-                redirectAttributes.addFlashAttribute("user", user); // Mantener datos
-                return "redirect:/users/new";
-            }
-
             // **Lógica de negocio del UserServlet: Calcular passwordExpiresAt**
             if (user.getLastPasswordChange() != null) {
                 user.setPasswordExpiresAt(user.getLastPasswordChange().plusMonths(3));
@@ -151,7 +226,15 @@ public class UsersController {
                 user.setPasswordExpiresAt(now.plusMonths(3));
             }
 
-            usersDAO.insertUser(user);
+            // **Validación de unicidad de username**: la hace el propio INSERT (índice único)
+            if (usersDAO.insertUser(user) == WriteOutcome.DUPLICATE) {
+                logger.warn("El username {} ya existe.", user.getUsername());
+                // Usar messageSource para el mensaje de error si está configurado
+                // String errorMessage = messageSource.getMessage("msg.user-controller.insert.usernameExist", null, locale);
+                redirectAttributes.addFlashAttribute("errorMessage", "El username ya existe. Por favor, elija otro.");
+                redirectAttributes.addFlashAttribute("user", user); // Mantener datos
+                return "redirect:/users/new";
+            }
             logger.info(" Usuario '{}' insertado con éxito.", user.getUsername());
             redirectAttributes.addFlashAttribute("successMessage", "Usuario creado con éxito.");
 
@@ -185,13 +268,6 @@ public class UsersController {
         }
 
         try {
-            // **Validación de unicidad de username (excluyendo el ID actual)**
-            if (usersDAO.existsUserByUsernameAndNotId(user.getUsername(), user.getId())) {
-                logger.warn("El username {} ya existe para otro usuario.", user.getUsername());
-                redirectAttributes.addFlashAttribute("errorMessage", "El username ya existe para otro usuario.");
-                return "redirect:/users/edit?id=" + user.getId();
-            }
-
             // **Lógica de negocio del UserServlet: Recalcular passwordExpiresAt**
             if (user.getLastPasswordChange() != null) {
                 user.setPasswordExpiresAt(user.getLastPasswordChange().plusMonths(3));
@@ -201,7 +277,12 @@ public class UsersController {
                 user.setPasswordExpiresAt(LocalDateTime.now().plusMonths(3));
             }
 
-            usersDAO.updateUsers(user);
+            // **Validación de unicidad de username (excluyendo el ID actual)**: la hace el propio UPDATE
+            if (usersDAO.updateUsers(user) == WriteOutcome.DUPLICATE) {
+                logger.warn("El username {} ya existe para otro usuario.", user.getUsername());
+                redirectAttributes.addFlashAttribute("errorMessage", "El username ya existe para otro usuario.");
+                return "redirect:/users/edit?id=" + user.getId();
+            }
             logger.info(" Usuario con ID {} actualizado con éxito.", user.getId());
             redirectAttributes.addFlashAttribute("successMessage", "Usuario actualizado con éxito.");
 
@@ -235,4 +316,82 @@ public class UsersController {
         }
         return "redirect:/users";
     }
-}
\ No newline at end of file
+
+    // --- IMPORTACIÓN / EXPORTACIÓN CSV ---
+
+    /**
+     * Descarga todos los usuarios en CSV. Las filas se escriben en la respuesta según se
+     * leen del cursor JDBC, así que la memoria usada no depende del número de usuarios.
+     * La contraseña no se exporta.
+     * URL: /users/export.csv
+     *
+     * @return Respuesta {@code text/csv} escrita en streaming.
+     */
+    @GetMapping("/export.csv")
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        logger.info(" Exportando usuarios a CSV.");
+        return CsvResponses.attachment("users.csv", exportTimeout, csv -> {
+            csv.writeRow("id", "username", "active", "accountNonLocked", "lastPasswordChange",
+                    "passwordExpiresAt", "failedLoginAttempts", "emailVerified", "mustChangePassword");
+            usersDAO.forEachUser(user -> csv.writeRow(user.getId(), user.getUsername(), user.isActive(),
+                    user.isAccountNonLocked(), user.getLastPasswordChange(), user.getPasswordExpiresAt(),
+                    user.getFailedLoginAttempts(), user.isEmailVerified(), user.isMustChangePassword()));
+        });
+    }
+
+    /**
+     * Importa usuarios desde un CSV subido por formulario. El fichero se procesa línea a
+     * línea y se inserta por lotes; las filas no válidas o duplicadas se descartan y se
+     * informan en la lista de usuarios.
+     * URL: /users/import
+     * <p>
+     * Columnas obligatorias: {@code username} y {@code passwordHash}. Opcionales (con el
+     * mismo significado que en el formulario): {@code active}, {@code accountNonLocked},
+     * {@code lastPasswordChange}, {@code failedLoginAttempts}, {@code emailVerified} y
+     * {@code mustChangePassword}. {@code passwordExpiresAt} se calcula igual que al insertar.
+     * </p>
+     *
+     * @param file Fichero CSV (UTF-8) con cabecera.
+     * @param redirectAttributes Atributos para mensajes flash.
+     * @param locale Configuración regional.
+     * @return Redirección a la lista de usuarios.
+     */
+    @PostMapping("/import")
+    public String importUsers(@RequestParam("file") MultipartFile file, RedirectAttributes redirectAttributes, Locale locale) {
+        logger.info(" Importando usuarios desde el fichero {}", file.getOriginalFilename());
+        CsvBatchImporter<Users> importer = new CsvBatchImporter<>(
+                List.of("username", "passwordHash"), this::parseUser,
+                usersDAO::insertUsers, usersDAO::insertUser, batchSize, transactionTemplate);
+        try (Reader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)) {
+            CsvImportReport report = importer.importFrom(reader);
+            logger.info(" Importación de usuarios terminada: {} importados, {} con errores.",
+                    report.getImported(), report.getFailed());
+            redirectAttributes.addFlashAttribute("successMessage", messageSource.getMessage(
+                    "msg.csv.import.result", new Object[]{report.getImported(), report.getFailed()}, locale));
+            redirectAttributes.addFlashAttribute("importErrors", report.getErrors());
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error(" Error al importar usuarios: {}", e.getMessage());
+            redirectAttributes.addFlashAttribute("errorMessage",
+                    messageSource.getMessage("msg.csv.import.error", new Object[]{e.getMessage()}, locale));
+        }
+        return "redirect:/users";
+    }
+
+    private Users parseUser(CsvRecord record) {
+        LocalDateTime lastPasswordChange = record.getDateTime("lastPasswordChange");
+        if (lastPasswordChange == null) {
+            lastPasswordChange = LocalDateTime.now();
+        }
+        Users user = new Users(
+                record.getRequired("username"),
+                record.getRequired("passwordHash"),
+                record.getBoolean("active", true),
+                record.getBoolean("accountNonLocked", true),
+                lastPasswordChange,
+                lastPasswordChange.plusMonths(3),
+                record.getInt("failedLoginAttempts", 0),
+                record.getBoolean("emailVerified", false),
+                record.getBoolean("mustChangePassword", false));
+        return CsvBatchImporter.requireValid(validator, user);
+    }
+}
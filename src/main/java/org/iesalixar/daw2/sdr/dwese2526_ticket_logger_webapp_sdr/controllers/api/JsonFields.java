@@ -0,0 +1,69 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.controllers.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Campos que la API puede devolver de un recurso y cómo se escribe cada uno en JSON.
+ * <p>
+ * El parámetro {@code fields} de la petición elige cuáles se escriben y en qué orden; sin él
+ * se escriben todos. Solo existen los campos registrados aquí, así que nada que no se haya
+ * declarado (por ejemplo el hash de la contraseña) puede salir por la API.
+ * </p>
+ *
+ * @param <T> tipo del recurso
+ */
+final class JsonFields<T> {
+
+    @FunctionalInterface
+    interface FieldWriter<T> {
+        void write(JsonGenerator generator, T item) throws IOException;
+    }
+
+    private final Map<String, FieldWriter<T>> writers = new LinkedHashMap<>();
+
+    JsonFields<T> add(String name, FieldWriter<T> writer) {
+        writers.put(name, (generator, item) -> {
+            generator.writeFieldName(name);
+            writer.write(generator, item);
+        });
+        return this;
+    }
+
+    /**
+     * @param fields lista separada por comas, o {@code null}/vacía para todos los campos
+     * @return los escritores de los campos pedidos, en el orden pedido
+     * @throws ResponseStatusException 400 si se pide un campo que no existe
+     */
+    List<FieldWriter<T>> select(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return List.copyOf(writers.values());
+        }
+        List<FieldWriter<T>> selected = new ArrayList<>();
+        List<String> unknown = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            FieldWriter<T> writer = writers.get(name);
+            if (writer == null) {
+                unknown.add(name);
+            } else if (!selected.contains(writer)) {
+                selected.add(writer);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Campos desconocidos: " + unknown + ". Disponibles: " + writers.keySet());
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,100 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.controllers.api;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Respuestas paginadas de la API escritas en streaming con el {@link JsonGenerator} de Jackson.
+ * <p>
+ * Cada elemento se escribe en la salida según lo entrega el cursor del DAO, sin construir
+ * ninguna lista. El formato es:
+ * </p>
+ * <pre>
+ * {"items":[{...},{...}],"next":42}
+ * </pre>
+ * <p>
+ * {@code next} es el valor de {@code after} para pedir la página siguiente, o {@code null} si
+ * no hay más. Para saberlo se piden al DAO {@code limit + 1} filas y la última no se escribe.
+ * </p>
+ */
+final class JsonPages {
+
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+
+    private JsonPages() {
+    }
+
+    /**
+     * Comprueba los parámetros de paginación antes de empezar a escribir la respuesta.
+     *
+     * @throws ResponseStatusException 400 si {@code after} es negativo o {@code limit} no está entre 1 y {@link #MAX_LIMIT}
+     */
+    static void checkPage(long after, int limit) {
+        if (after < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "after no puede ser negativo");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit debe estar entre 1 y " + MAX_LIMIT);
+        }
+    }
+
+    /**
+     * @param objectMapper mapper de la aplicación (configuración de Jackson de Spring Boot)
+     * @param fields campos a escribir de cada elemento
+     * @param limit tamaño de página
+     * @param source recorre hasta {@code limit + 1} elementos a partir del cursor
+     * @param id id de un elemento, para calcular {@code next}
+     */
+    static <T> ResponseEntity<StreamingResponseBody> page(ObjectMapper objectMapper, List<JsonFields.FieldWriter<T>> fields,
+                                                         int limit, Consumer<Consumer<T>> source, ToLongFunction<T> id) {
+        StreamingResponseBody body = out -> {
+            // La salida es de Spring: el generador se cierra (y vacía) sin cerrarla
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("items");
+                long[] written = {0};
+                long[] lastId = {0};
+                boolean[] more = {false};
+                source.accept(item -> {
+                    if (written[0] == limit) {
+                        more[0] = true;
+                        return;
+                    }
+                    try {
+                        generator.writeStartObject();
+                        for (JsonFields.FieldWriter<T> field : fields) {
+                            field.write(generator, item);
+                        }
+                        generator.writeEndObject();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    written[0]++;
+                    lastId[0] = id.applyAsLong(item);
+                });
+                generator.writeEndArray();
+                if (more[0]) {
+                    generator.writeNumberField("next", lastId[0]);
+                } else {
+                    generator.writeNullField("next");
+                }
+                generator.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+}
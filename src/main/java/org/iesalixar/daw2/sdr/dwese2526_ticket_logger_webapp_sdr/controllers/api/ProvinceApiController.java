@@ -0,0 +1,88 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.controllers.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.ProvinceDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Province;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Region;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
+/**
+ * API REST de solo lectura de provincias. La región se devuelve anidada ({@code id}, {@code code}
+ * y {@code name}) en el campo {@code region}.
+ * URL: /api/v1/provinces?after=0&amp;limit=100&amp;fields=id,code,name,region
+ */
+@RestController
+@RequestMapping("/api/v1/provinces")
+public class ProvinceApiController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProvinceApiController.class);
+
+    private static final JsonFields<Province> FIELDS = new JsonFields<Province>()
+            .add("id", (gen, province) -> gen.writeNumber(province.getId()))
+            .add("code", (gen, province) -> gen.writeString(province.getCode()))
+            .add("name", (gen, province) -> gen.writeString(province.getName()))
+            .add("region", (gen, province) -> {
+                Region region = province.getRegion();
+                if (region == null) {
+                    gen.writeNull();
+                    return;
+                }
+                gen.writeStartObject();
+                gen.writeNumberField("id", region.getId());
+                gen.writeStringField("code", region.getCode());
+                gen.writeStringField("name", region.getName());
+                gen.writeEndObject();
+            });
+
+    @Autowired
+    private ProvinceDAO provinceDAO;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Devuelve una página de provincias ordenadas por id.
+     *
+     * @param after id de la última provincia de la página anterior (0 para la primera)
+     * @param limit número máximo de provincias
+     * @param fields campos a devolver, separados por comas (todos si se omite)
+     */
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> listProvinces(@RequestParam(value = "after", defaultValue = "0") long after,
+                                                               @RequestParam(value = "limit", defaultValue = "" + JsonPages.DEFAULT_LIMIT) int limit,
+                                                               @RequestParam(value = "fields", required = false) String fields) {
+        logger.info("API: solicitando provincias (after: {}, limit: {}, fields: {})", after, limit, fields);
+        JsonPages.checkPage(after, limit);
+        List<JsonFields.FieldWriter<Province>> selected = FIELDS.select(fields);
+        return JsonPages.page(objectMapper, selected, limit,
+                action -> provinceDAO.forEachProvince(after, limit + 1, action), Province::getId);
+    }
+
+    /**
+     * Autocompletado del buscador de provincias: las primeras cuyo nombre o código empieza por
+     * {@code q}, opcionalmente de una región.
+     * URL: /api/v1/provinces/suggest?q=se&amp;region=1&amp;limit=10
+     */
+    @GetMapping("/suggest")
+    public List<Suggestion> suggestProvinces(@RequestParam(value = "q", defaultValue = "") String q,
+                                             @RequestParam(value = "region", required = false) Long region,
+                                             @RequestParam(value = "limit", defaultValue = "" + Suggestion.DEFAULT_LIMIT) int limit) {
+        if (q.isBlank()) {
+            return List.of();
+        }
+        return provinceDAO.searchProvinces(q, region, Suggestion.clampLimit(limit)).stream()
+                .map(province -> new Suggestion(province.getId(), province.getName(),
+                        province.getName() + " (" + province.getCode() + ")"))
+                .toList();
+    }
+}
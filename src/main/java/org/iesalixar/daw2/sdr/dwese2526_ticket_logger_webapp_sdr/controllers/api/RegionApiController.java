@@ -0,0 +1,56 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.controllers.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.RegionDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Region;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
+/**
+ * API REST de solo lectura de regiones.
+ * URL: /api/v1/regions?after=0&amp;limit=100&amp;fields=id,code,name
+ */
+@RestController
+@RequestMapping("/api/v1/regions")
+public class RegionApiController {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegionApiController.class);
+
+    private static final JsonFields<Region> FIELDS = new JsonFields<Region>()
+            .add("id", (gen, region) -> gen.writeNumber(region.getId()))
+            .add("code", (gen, region) -> gen.writeString(region.getCode()))
+            .add("name", (gen, region) -> gen.writeString(region.getName()));
+
+    @Autowired
+    private RegionDAO regionDAO;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Devuelve una página de regiones ordenadas por id.
+     *
+     * @param after id de la última región de la página anterior (0 para la primera)
+     * @param limit número máximo de regiones
+     * @param fields campos a devolver, separados por comas (todos si se omite)
+     */
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> listRegions(@RequestParam(value = "after", defaultValue = "0") long after,
+                                                             @RequestParam(value = "limit", defaultValue = "" + JsonPages.DEFAULT_LIMIT) int limit,
+                                                             @RequestParam(value = "fields", required = false) String fields) {
+        logger.info("API: solicitando regiones (after: {}, limit: {}, fields: {})", after, limit, fields);
+        JsonPages.checkPage(after, limit);
+        List<JsonFields.FieldWriter<Region>> selected = FIELDS.select(fields);
+        return JsonPages.page(objectMapper, selected, limit,
+                action -> regionDAO.forEachRegion(after, limit + 1, action), Region::getId);
+    }
+}
@@ -0,0 +1,21 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.controllers.api;
+
+/**
+ * Sugerencia de los endpoints de autocompletado ({@code /suggest}).
+ *
+ * @param id    id del recurso
+ * @param value texto que se escribe en el buscador al elegirla
+ * @param label texto que se muestra en la lista
+ */
+public record Suggestion(long id, String value, String label) {
+
+    static final int DEFAULT_LIMIT = 10;
+    static final int MAX_LIMIT = 20;
+
+    /**
+     * @return {@code limit} dentro del rango permitido (1 a {@link #MAX_LIMIT})
+     */
+    static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+}
@@ -0,0 +1,89 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.controllers.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.UsersDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Users;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * API REST de solo lectura de usuarios. El hash de la contraseña no es un campo de la API.
+ * URL: /api/v1/users?after=0&amp;limit=100&amp;fields=id,username,active
+ */
+@RestController
+@RequestMapping("/api/v1/users")
+public class UsersApiController {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsersApiController.class);
+
+    private static final JsonFields<Users> FIELDS = new JsonFields<Users>()
+            .add("id", (gen, user) -> gen.writeNumber(user.getId()))
+            .add("username", (gen, user) -> gen.writeString(user.getUsername()))
+            .add("active", (gen, user) -> gen.writeBoolean(user.isActive()))
+            .add("accountNonLocked", (gen, user) -> gen.writeBoolean(user.isAccountNonLocked()))
+            .add("lastPasswordChange", (gen, user) -> writeDateTime(gen, user.getLastPasswordChange()))
+            .add("passwordExpiresAt", (gen, user) -> writeDateTime(gen, user.getPasswordExpiresAt()))
+            .add("failedLoginAttempts", (gen, user) -> gen.writeNumber(user.getFailedLoginAttempts()))
+            .add("emailVerified", (gen, user) -> gen.writeBoolean(user.isEmailVerified()))
+            .add("mustChangePassword", (gen, user) -> gen.writeBoolean(user.isMustChangePassword()));
+
+    @Autowired
+    private UsersDAO usersDAO;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Devuelve una página de usuarios ordenados por id.
+     *
+     * @param after id del último usuario de la página anterior (0 para la primera)
+     * @param limit número máximo de usuarios
+     * @param fields campos a devolver, separados por comas (todos si se omite)
+     */
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> listUsers(@RequestParam(value = "after", defaultValue = "0") long after,
+                                                           @RequestParam(value = "limit", defaultValue = "" + JsonPages.DEFAULT_LIMIT) int limit,
+                                                           @RequestParam(value = "fields", required = false) String fields) {
+        logger.info("API: solicitando usuarios (after: {}, limit: {}, fields: {})", after, limit, fields);
+        JsonPages.checkPage(after, limit);
+        List<JsonFields.FieldWriter<Users>> selected = FIELDS.select(fields);
+        return JsonPages.page(objectMapper, selected, limit,
+                action -> usersDAO.forEachUser(after, limit + 1, action), Users::getId);
+    }
+
+    /**
+     * Autocompletado del buscador de usuarios: los primeros usernames que empiezan por {@code q}.
+     * URL: /api/v1/users/suggest?q=ad&amp;limit=10
+     */
+    @GetMapping("/suggest")
+    public List<Suggestion> suggestUsers(@RequestParam(value = "q", defaultValue = "") String q,
+                                         @RequestParam(value = "limit", defaultValue = "" + Suggestion.DEFAULT_LIMIT) int limit) {
+        if (q.isBlank()) {
+            return List.of();
+        }
+        return usersDAO.searchUsersByUsernamePrefix(q, Suggestion.clampLimit(limit)).stream()
+                .map(user -> new Suggestion(user.id(), user.username(), user.username()))
+                .toList();
+    }
+
+    // Fechas en ISO-8601 (como en la exportación CSV)
+    private static void writeDateTime(JsonGenerator gen, LocalDateTime value) throws IOException {
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeString(value.toString());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.csv;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.WriteOutcome;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Importa un CSV por lotes sin cargar el fichero completo en memoria.
+ * <p>
+ * La primera línea debe ser la cabecera con los nombres de columna. Cada registro se
+ * convierte con {@code parser}; los que fallan se anotan en el informe y se descartan.
+ * Los válidos se acumulan hasta {@code batchSize} y se envían con {@code batchWriter}.
+ * Si un lote falla en la base de datos (por ejemplo, por un duplicado), se reintenta fila
+ * a fila con {@code rowWriter} para saber exactamente qué líneas fallan y guardar el resto;
+ * una fila que {@code rowWriter} devuelve como {@link WriteOutcome#DUPLICATE} cuenta como error.
+ * Cada lote se escribe dentro de una transacción, de modo que un lote fallido no deja
+ * filas a medias antes del reintento.
+ * </p>
+ *
+ * @param <T> tipo de entidad que se importa
+ */
+public class CsvBatchImporter<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(CsvBatchImporter.class);
+
+    static final String DUPLICATE_MESSAGE = "ya existe un registro con el mismo valor único (código o nombre de usuario)";
+
+    private final List<String> requiredColumns;
+    private final Function<CsvRecord, T> parser;
+    private final Function<List<T>, int[]> batchWriter;
+    private final Function<T, WriteOutcome> rowWriter;
+    private final int batchSize;
+    private final TransactionOperations transactions;
+
+    /**
+     * @param requiredColumns columnas que deben aparecer en la cabecera
+     * @param parser convierte (y valida) un registro; lanza {@link IllegalArgumentException} si no es válido
+     * @param batchWriter escribe un lote completo (p. ej. {@code usersDAO::insertUsers})
+     * @param rowWriter escribe una sola fila (p. ej. {@code usersDAO::insertUser}) y devuelve si la ha escrito
+     * @param batchSize filas por lote
+     * @param transactions transacción en la que se escribe cada lote
+     */
+    public CsvBatchImporter(List<String> requiredColumns, Function<CsvRecord, T> parser,
+                            Function<List<T>, int[]> batchWriter, Function<T, WriteOutcome> rowWriter,
+                            int batchSize, TransactionOperations transactions) {
+        this.requiredColumns = requiredColumns;
+        this.parser = parser;
+        this.batchWriter = batchWriter;
+        this.rowWriter = rowWriter;
+        this.batchSize = batchSize;
+        this.transactions = transactions;
+    }
+
+    /**
+     * Lee e importa el CSV completo.
+     *
+     * @param input contenido del fichero (no se cierra)
+     * @return el informe de la importación
+     * @throws IOException si falla la lectura
+     * @throws IllegalArgumentException si el fichero está vacío o a la cabecera le faltan columnas
+     */
+    public CsvImportReport importFrom(Reader input) throws IOException {
+        CsvReader reader = new CsvReader(input);
+        Map<String, Integer> header = readHeader(reader);
+
+        CsvImportReport report = new CsvImportReport();
+        List<T> batch = new ArrayList<>(batchSize);
+        List<Integer> batchLines = new ArrayList<>(batchSize);
+        List<String> fields;
+        while ((fields = reader.readRecord()) != null) {
+            int line = reader.getRecordLineNumber();
+            try {
+                batch.add(parser.apply(new CsvRecord(header, fields, line)));
+                batchLines.add(line);
+            } catch (IllegalArgumentException e) {
+                report.addError(line, e.getMessage());
+            }
+            if (batch.size() == batchSize) {
+                flush(batch, batchLines, report);
+            }
+        }
+        flush(batch, batchLines, report);
+        return report;
+    }
+
+    private Map<String, Integer> readHeader(CsvReader reader) throws IOException {
+        List<String> columns = reader.readRecord();
+        if (columns == null) {
+            throw new IllegalArgumentException("El fichero está vacío");
+        }
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            header.put(columns.get(i).trim(), i);
+        }
+        List<String> missing = requiredColumns.stream().filter(c -> !header.containsKey(c)).toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Faltan columnas en la cabecera: " + String.join(", ", missing));
+        }
+        return header;
+    }
+
+    private void flush(List<T> batch, List<Integer> batchLines, CsvImportReport report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactions.executeWithoutResult(status -> batchWriter.apply(batch));
+            report.addImported(batch.size());
+        } catch (DataAccessException batchError) {
+            logger.debug("Lote de {} filas rechazado, reintentando fila a fila: {}", batch.size(), batchError.getMessage());
+            for (int i = 0; i < batch.size(); i++) {
+                try {
+                    if (rowWriter.apply(batch.get(i)) == WriteOutcome.DUPLICATE) {
+                        report.addError(batchLines.get(i), DUPLICATE_MESSAGE);
+                    } else {
+                        report.addImported(1);
+                    }
+                } catch (DataAccessException rowError) {
+                    report.addError(batchLines.get(i), rowError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        batch.clear();
+        batchLines.clear();
+    }
+
+    /**
+     * Aplica las validaciones Bean Validation de la entidad (las mismas que los formularios).
+     *
+     * @return la propia entidad si es válida
+     * @throws IllegalArgumentException con los mensajes de error si no lo es
+     */
+    public static <E> E requireValid(Validator validator, E entity) {
+        Set<ConstraintViolation<E>> violations = validator.validate(entity);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        return entity;
+    }
+}
@@ -0,0 +1,50 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.csv;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de una importación CSV: filas importadas, filas rechazadas y el detalle
+ * de los errores por línea.
+ * <p>
+ * Solo se guarda el detalle de los primeros {@value #MAX_ERRORS} errores para que un
+ * fichero completamente erróneo no llene la sesión (el informe viaja como atributo flash);
+ * el contador de fallos sí incluye todos.
+ * </p>
+ */
+public class CsvImportReport {
+
+    public static final int MAX_ERRORS = 100;
+
+    private int imported;
+    private int failed;
+    private final List<String> errors = new ArrayList<>();
+
+    void addImported(int rows) {
+        imported += rows;
+    }
+
+    void addError(int lineNumber, String message) {
+        failed++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add("Línea " + lineNumber + ": " + message);
+        }
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public boolean hasErrors() {
+        return failed > 0;
+    }
+
+    public List<String> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+}
@@ -0,0 +1,112 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.csv;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector CSV (RFC 4180) incremental: lee un registro cada vez, así que el tamaño del
+ * fichero no influye en la memoria usada.
+ * <p>
+ * Admite campos entre comillas con comas, comillas dobles escapadas ({@code ""}) y
+ * saltos de línea, finales de línea {@code \n} o {@code \r\n}, y un BOM UTF-8 al inicio.
+ * </p>
+ */
+public class CsvReader {
+
+    private final BufferedReader reader;
+    private int lineNumber = 1;
+    private int recordLineNumber;
+    private boolean firstChar = true;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+    }
+
+    /**
+     * Lee el siguiente registro.
+     *
+     * @return los campos del registro, o {@code null} al llegar al final del fichero
+     * @throws IOException si falla la lectura
+     * @throws IllegalArgumentException si hay un campo entre comillas sin cerrar
+     */
+    public List<String> readRecord() throws IOException {
+        int c = read();
+        // Las líneas vacías no son registros
+        while (c == '\r' || c == '\n') {
+            if (c == '\n') {
+                lineNumber++;
+            }
+            c = read();
+        }
+        if (c == -1) {
+            return null;
+        }
+        recordLineNumber = lineNumber;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IllegalArgumentException("Campo entre comillas sin cerrar en la línea " + recordLineNumber);
+                }
+                if (c == '"') {
+                    c = read();
+                    if (c == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r' || c == -1) {
+                if (c == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                }
+                if (c != -1) {
+                    lineNumber++;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * @return la línea del fichero (empezando en 1) en la que empieza el último registro leído
+     */
+    public int getRecordLineNumber() {
+        return recordLineNumber;
+    }
+
+    private int read() throws IOException {
+        int c = reader.read();
+        if (firstChar) {
+            firstChar = false;
+            if (c == '\uFEFF') {
+                c = reader.read();
+            }
+        }
+        return c;
+    }
+}
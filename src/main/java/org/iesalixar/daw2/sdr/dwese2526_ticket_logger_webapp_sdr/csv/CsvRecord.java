@@ -0,0 +1,100 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.csv;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registro de un CSV con acceso a los campos por nombre de columna (según la cabecera).
+ * <p>
+ * Los métodos de conversión lanzan {@link IllegalArgumentException} con un mensaje
+ * legible cuando un valor no es válido; el importador lo recoge en el informe de errores
+ * de la fila.
+ * </p>
+ */
+public class CsvRecord {
+
+    private final Map<String, Integer> header;
+    private final List<String> fields;
+    private final int lineNumber;
+
+    CsvRecord(Map<String, Integer> header, List<String> fields, int lineNumber) {
+        this.header = header;
+        this.fields = fields;
+        this.lineNumber = lineNumber;
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return el valor de la columna sin espacios alrededor, o {@code null} si la columna
+     *         no existe en el fichero o está vacía
+     */
+    public String get(String column) {
+        Integer index = header.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    public String getRequired(String column) {
+        String value = get(column);
+        if (value == null) {
+            throw new IllegalArgumentException("La columna '" + column + "' es obligatoria");
+        }
+        return value;
+    }
+
+    public boolean getBoolean(String column, boolean defaultValue) {
+        String value = get(column);
+        if (value == null) {
+            return defaultValue;
+        }
+        return switch (value.toLowerCase()) {
+            case "true", "1" -> true;
+            case "false", "0" -> false;
+            default -> throw new IllegalArgumentException("Valor booleano no válido en '" + column + "': " + value);
+        };
+    }
+
+    public int getInt(String column, int defaultValue) {
+        String value = get(column);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Número no válido en '" + column + "': " + value);
+        }
+    }
+
+    public long getRequiredLong(String column) {
+        String value = getRequired(column);
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Número no válido en '" + column + "': " + value);
+        }
+    }
+
+    /**
+     * @return la fecha en formato ISO ({@code 2025-01-31T10:15:30}), o {@code null} si está vacía
+     */
+    public LocalDateTime getDateTime(String column) {
+        String value = get(column);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Fecha no válida en '" + column + "': " + value);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.csv;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Construcción de respuestas de descarga CSV escritas en streaming.
+ */
+public final class CsvResponses {
+
+    public static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    private CsvResponses() {
+    }
+
+    /**
+     * Crea una respuesta {@code text/csv} descargable cuyo cuerpo se escribe directamente
+     * sobre la salida HTTP, fuera del hilo del controlador.
+     * <p>
+     * La escritura es una petición asíncrona: {@code timeout} sustituye, solo para esta petición,
+     * al límite general de las peticiones asíncronas, que es corto para una tabla grande. Si se
+     * agota, la descarga se corta.
+     * </p>
+     *
+     * @param filename nombre del fichero que verá el navegador
+     * @param timeout tiempo máximo para escribir el fichero completo
+     * @param body escribe las filas (cabecera incluida) sobre el {@link CsvWriter}
+     * @return la respuesta lista para devolver desde el controlador
+     */
+    public static ResponseEntity<StreamingResponseBody> attachment(String filename, Duration timeout,
+                                                                   Consumer<CsvWriter> body) {
+        setAsyncTimeout(timeout);
+        StreamingResponseBody stream = out -> {
+            CsvWriter writer = new CsvWriter(out);
+            body.accept(writer);
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(TEXT_CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(filename).build().toString())
+                .body(stream);
+    }
+
+    // El adaptador de Spring MVC fija el límite general antes de llamar al controlador y no lo
+    // vuelve a tocar al empezar a escribir un StreamingResponseBody
+    private static void setAsyncTimeout(Duration timeout) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            AsyncWebRequest asyncWebRequest =
+                    WebAsyncUtils.getAsyncManager(servletAttributes.getRequest()).getAsyncWebRequest();
+            if (asyncWebRequest != null) {
+                asyncWebRequest.setTimeout(timeout.toMillis());
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.csv;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Escritor CSV (RFC 4180) que escribe fila a fila sobre un flujo de salida.
+ * <p>
+ * No guarda nada en memoria salvo el buffer de escritura, por lo que se puede usar para
+ * volcar tablas completas directamente a la respuesta HTTP. Los campos que contienen
+ * comas, comillas o saltos de línea se escriben entre comillas; los {@code null} se
+ * escriben como campo vacío.
+ * </p>
+ *
+ * <p>Los errores de E/S se lanzan como {@link UncheckedIOException} para poder escribir
+ * desde los callbacks de los DAOs.</p>
+ */
+public class CsvWriter {
+
+    private final Writer writer;
+
+    public CsvWriter(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Escribe una fila completa.
+     *
+     * @param values valores de la fila; se convierten con {@code toString()}
+     */
+    public void writeRow(Object... values) {
+        try {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeField(values[i]);
+            }
+            writer.write("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeField(Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,36 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
+
+/**
+ * Utilidades para los resultados de {@code JdbcTemplate.batchUpdate} por lotes.
+ */
+final class BatchResults {
+
+    private BatchResults() {
+    }
+
+    /**
+     * Aplana los resultados por lote ({@code int[lote][fila]}) en un único array con
+     * una posición por fila, en el mismo orden que la lista de entrada.
+     * <p>
+     * Cada posición contiene las filas afectadas o {@link java.sql.Statement#SUCCESS_NO_INFO}
+     * cuando el driver no informa del resultado por fila (por ejemplo MariaDB con
+     * {@code rewriteBatchedStatements}).
+     * </p>
+     *
+     * @param counts resultados devueltos por {@code batchUpdate}
+     * @return un resultado por fila
+     */
+    static int[] flatten(int[][] counts) {
+        int total = 0;
+        for (int[] batch : counts) {
+            total += batch.length;
+        }
+        int[] rows = new int[total];
+        int position = 0;
+        for (int[] batch : counts) {
+            System.arraycopy(batch, 0, rows, position, batch.length);
+            position += batch.length;
+        }
+        return rows;
+    }
+}
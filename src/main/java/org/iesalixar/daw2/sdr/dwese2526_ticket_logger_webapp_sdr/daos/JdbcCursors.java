@@ -0,0 +1,43 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
+
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.function.Consumer;
+
+/**
+ * Recorrido de consultas grandes fila a fila, sin construir la lista de resultados.
+ */
+final class JdbcCursors {
+
+    // Filas que el driver trae del servidor en cada viaje mientras se recorre el cursor
+    static final int FETCH_SIZE = 1000;
+
+    private JdbcCursors() {
+    }
+
+    /**
+     * Ejecuta {@code sql} con un cursor de solo avance y entrega cada fila mapeada a
+     * {@code action} según se lee.
+     * <p>
+     * Con un {@code fetchSize} positivo el driver de MariaDB pasa a modo streaming y solo
+     * mantiene en memoria {@link #FETCH_SIZE} filas a la vez, así que el consumo no depende
+     * del tamaño de la tabla. La conexión queda ocupada hasta que termina el recorrido.
+     * </p>
+     *
+     * @param args valores de los parámetros {@code ?} de la consulta, en orden
+     */
+    static <T> void forEach(JdbcTemplate jdbcTemplate, String sql, RowMapper<T> rowMapper, Consumer<? super T> action,
+                            Object... args) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            new ArgumentPreparedStatementSetter(args).setValues(ps);
+            return ps;
+        }, (RowCallbackHandler) rs -> action.accept(rowMapper.mapRow(rs, rs.getRow())));
+    }
+}
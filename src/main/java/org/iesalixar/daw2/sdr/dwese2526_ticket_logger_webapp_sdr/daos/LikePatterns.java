@@ -0,0 +1,31 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
+
+import java.util.Locale;
+
+/**
+ * Patrones {@code LIKE} para las búsquedas por prefijo sobre las columnas normalizadas
+ * ({@code *_norm}, en mayúsculas).
+ */
+final class LikePatterns {
+
+    private LikePatterns() {
+    }
+
+    /**
+     * Convierte el texto buscado en un patrón {@code 'TEXTO%'}: en mayúsculas como las columnas
+     * {@code *_norm} y con {@code \}, {@code %} y {@code _} escapados para que se busquen
+     * literalmente. Al no empezar por comodín, la condición usa el índice de la columna.
+     */
+    static String prefix(String text) {
+        String normalized = text.trim().toUpperCase(Locale.ROOT);
+        StringBuilder pattern = new StringBuilder(normalized.length() + 1);
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (c == '\\' || c == '%' || c == '_') {
+                pattern.append('\\');
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+}
@@ -3,14 +3,90 @@ package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Province;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ProvinceDAO {
     List<Province> listAllProvinces();
-    void insertProvince(Province province);
-    void updateProvince(Province province);
+
+    /**
+     * Versión de la tabla en este proceso: empieza en 0 al arrancar y aumenta con cada
+     * escritura hecha a través de este DAO. Sirve para saber si un listado ha cambiado sin
+     * consultar la base de datos (ETags de los listados).
+     *
+     * @return la versión actual
+     */
+    long getVersion();
+
+    /**
+     * Recorre todas las provincias (con su región), ordenadas por id, entregándolas una a
+     * una según se leen de la base de datos, sin cargar la tabla completa en memoria.
+     *
+     * @param action acción a ejecutar con cada provincia
+     */
+    void forEachProvince(Consumer<Province> action);
+
+    /**
+     * Recorre, ordenadas por id, hasta {@code limit} provincias con id mayor que {@code afterId},
+     * entregándolas una a una (paginación por clave para la API REST).
+     *
+     * @param afterId id de la última provincia ya leída (0 para empezar desde el principio)
+     * @param limit número máximo de provincias
+     * @param action acción a ejecutar con cada provincia
+     */
+    void forEachProvince(long afterId, int limit, Consumer<Province> action);
+
+    /**
+     * Recorre las provincias de una región (con la región), entregándolas una a una según se leen.
+     *
+     * @param regionId id de la región
+     * @param action acción a ejecutar con cada provincia
+     */
+    void forEachProvinceOfRegion(long regionId, Consumer<Province> action);
+
+    /**
+     * Busca provincias cuyo nombre o código empieza por {@code prefix}, sin distinguir
+     * mayúsculas, ordenadas por nombre.
+     *
+     * @param prefix comienzo del nombre o del código (vacío para no filtrar por texto)
+     * @param regionId si no es {@code null}, solo provincias de esa región
+     * @param limit número máximo de resultados
+     * @return como mucho {@code limit} provincias
+     */
+    List<Province> searchProvinces(String prefix, Long regionId, int limit);
+
+    /**
+     * Inserta una provincia. Si el código ya existe no se escribe nada.
+     *
+     * @return {@link WriteOutcome#DUPLICATE} si el código ya es de otra provincia
+     */
+    WriteOutcome insertProvince(Province province);
+
+    /**
+     * Actualiza una provincia por id. Si el nuevo código ya es de otra provincia no se escribe nada.
+     *
+     * @return {@link WriteOutcome#DUPLICATE} si el código ya es de otra provincia
+     */
+    WriteOutcome updateProvince(Province province);
     void deleteProvince(Long id);
     Province getProvinceById(Long id);
     boolean existsProvinceByCode(String code);
     boolean existsProvinceByCodeAndNotId(String code, Long id);
 
+    /**
+     * Inserta varias provincias usando lotes JDBC.
+     *
+     * @param provinces provincias a insertar
+     * @return un resultado por provincia, en el mismo orden: filas afectadas o
+     *         {@link java.sql.Statement#SUCCESS_NO_INFO} si el driver no lo informa
+     */
+    int[] insertProvinces(List<Province> provinces);
+
+    /**
+     * Actualiza varias provincias (por id) usando lotes JDBC.
+     *
+     * @param provinces provincias a actualizar
+     * @return un resultado por provincia, en el mismo orden (ver {@link #insertProvinces(List)})
+     */
+    int[] updateProvinces(List<Province> provinces);
+
 }
@@ -1,14 +1,27 @@
 package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
 
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.coalescing.Coalesced;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.datasource.ReadOnly;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Province;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Region;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.function.Consumer;
 
 @Repository
 public class ProvinceDaoImple implements ProvinceDAO{
@@ -17,124 +30,308 @@ public class ProvinceDaoImple implements ProvinceDAO{
 
     private final JdbcTemplate jdbcTemplate;
 
+    // Número de filas por lote en insertProvinces/updateProvinces
+    @Value("${app.jdbc.batch-size:500}")
+    private int batchSize = 500;
+
+    // Versión de la tabla para los ETags de los listados; los lotes la incrementan aunque fallen a medias
+    private final TableVersion version = new TableVersion();
+
     public ProvinceDaoImple(JdbcTemplate jdbcTemplate){
         this.jdbcTemplate=jdbcTemplate;
     }
 
-    private final RowMapper<Province> provinceRowMapper = (rs, rowNum) -> {
-        // Creamos la instancia de Province que vamos a devolver
-        Province province = new Province();
-
-        // Mapeamos las columnas propias de la tabla provinces
-        // // OJO: los alias usados en el SELECT deben coincidir con estos nombres de columna
-        province.setId(rs.getLong("id"));
-        province.setCode(rs.getString("code"));
-        province.setName(rs.getString("name"));
-
-        // Ahora mapeamos la región asociada (JOIN con regions)
-        // // Usamos alias en el SELECT: r.id AS region_id, r.code AS region_code, r.name AS region_name
-        Region region = new Region();
-        region.setId(rs.getLong("region_id"));
-        region.setCode(rs.getString("region_code"));
-        region.setName(rs.getString("region_name"));
-
-        // Asignamos el objeto Region a la Province
-        province.setRegion(region);
+    /**
+     * Mapeador de una consulta de provincias con su región (JOIN con regions). Se crea uno por
+     * consulta porque lleva su propio {@link RegionInterner}: las provincias de una misma región
+     * comparten el objeto {@link Region} en lugar de crear uno por fila.
+     */
+    static RowMapper<Province> provinceRowMapper() {
+        RegionInterner regions = new RegionInterner();
+        return (rs, rowNum) -> {
+            // Creamos la instancia de Province que vamos a devolver
+            Province province = new Province();
+
+            // Mapeamos las columnas propias de la tabla provinces
+            // // OJO: los alias usados en el SELECT deben coincidir con estos nombres de columna
+            province.setId(rs.getLong("id"));
+            province.setCode(rs.getString("code"));
+            province.setName(rs.getString("name"));
+
+            // Región asociada, compartida con las demás provincias de la misma región en esta consulta
+            // // Usamos alias en el SELECT: r.id AS region_id, r.code AS region_code, r.name AS region_name
+            province.setRegion(regions.intern(rs, "region_id", "region_code", "region_name"));
+
+            // Devolvemos la Province completamente montada
+            return province;
+        };
+    }
 
-        // Devolvemos la Province completamente montada
-        return province;
-    };
 
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
 
     @Override
+    @ReadOnly
+    @Coalesced
     public List<Province> listAllProvinces() {
-        logger.info("Entrando al metodo listAllProvinced");
+        logger.debug("Entrando al metodo listAllProvinced");
         String sql =
                 "SELECT p.id, p.code, p.name, r.id as region_id, r.code as region_code, r.name as region_name " +
                 "FROM provinces p " +
                         "JOIN regions r ON p.region_id = r.id";
 
-        List<Province> provinces = jdbcTemplate.query(sql, provinceRowMapper);
-        logger.info("Retrieved {} provinces from the database. ", provinces.size());
+        List<Province> provinces = jdbcTemplate.query(sql, provinceRowMapper());
+        logger.debug("Retrieved {} provinces from the database. ", provinces.size());
         return provinces;
     }
 
     /**
-     * Verifica si existe una provincia con el código especificado.
+     * Recorre la tabla {@code provinces} con un cursor en streaming (ver {@link JdbcCursors}).
+     * @param action acción a ejecutar con cada provincia.
+     */
+    @Override
+    @ReadOnly
+    public void forEachProvince(Consumer<Province> action) {
+        logger.debug("Entrando al metodo forEachProvince");
+        String sql =
+                "SELECT p.id, p.code, p.name, r.id as region_id, r.code as region_code, r.name as region_name " +
+                "FROM provinces p " +
+                        "JOIN regions r ON p.region_id = r.id " +
+                "ORDER BY p.id";
+        JdbcCursors.forEach(jdbcTemplate, sql, provinceRowMapper(), action);
+    }
+
+    /**
+     * Búsqueda por prefijo sobre las columnas indexadas {@code name_norm} y {@code code_norm}.
+     * <p>
+     * Un {@code name_norm LIKE ? OR code_norm LIKE ?} no puede recorrer ningún índice en orden y
+     * acaba ordenando todas las coincidencias. Por eso se hacen dos consultas, cada una por su
+     * índice y cortada en {@code limit}, y se mezclan por nombre: como mucho {@code 2 * limit} filas.
+     * </p>
+     */
+    @Override
+    @ReadOnly
+    public List<Province> searchProvinces(String prefix, Long regionId, int limit) {
+        logger.debug("Buscando provincias por prefijo '{}' (region: {}, limit: {})", prefix, regionId, limit);
+        List<Province> provinces;
+        if (prefix == null || prefix.isBlank()) {
+            provinces = searchProvincesBy(null, null, regionId, limit);
+        } else {
+            String pattern = LikePatterns.prefix(prefix);
+            Map<Long, Province> matches = new LinkedHashMap<>();
+            for (Province province : searchProvincesBy("name_norm", pattern, regionId, limit)) {
+                matches.put(province.getId(), province);
+            }
+            for (Province province : searchProvincesBy("code_norm", pattern, regionId, limit)) {
+                matches.putIfAbsent(province.getId(), province);
+            }
+            provinces = matches.values().stream()
+                    .sorted(Comparator.comparing((Province province) -> province.getName().toUpperCase(Locale.ROOT))
+                            .thenComparing(Province::getId))
+                    .limit(limit)
+                    .toList();
+        }
+        logger.debug("Found {} provinces", provinces.size());
+        return provinces;
+    }
+
+    // Sin JOIN: con el LIKE parametrizado el optimizador no sabe cuántas filas devuelve el prefijo y
+    // puede empezar por regions. Con provinces como única tabla la consulta es un recorrido del
+    // índice cortado en limit, y los datos de la región se leen solo para esas filas.
+    private List<Province> searchProvincesBy(String column, String pattern, Long regionId, int limit) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT p.id, p.code, p.name, p.region_id, " +
+                "(SELECT r.code FROM regions r WHERE r.id = p.region_id) as region_code, " +
+                "(SELECT r.name FROM regions r WHERE r.id = p.region_id) as region_name " +
+                "FROM provinces p WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (column != null) {
+            sql.append(" AND p.").append(column).append(" LIKE ?");
+            args.add(pattern);
+        }
+        if (regionId != null) {
+            sql.append(" AND p.region_id = ?");
+            args.add(regionId);
+        }
+        sql.append(" ORDER BY p.").append(column != null ? column : "name_norm").append(" LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), provinceRowMapper(), args.toArray());
+    }
+
+    @Override
+    @ReadOnly
+    public void forEachProvince(long afterId, int limit, Consumer<Province> action) {
+        logger.debug("Entrando al metodo forEachProvince (afterId: {}, limit: {})", afterId, limit);
+        String sql =
+                "SELECT p.id, p.code, p.name, r.id as region_id, r.code as region_code, r.name as region_name " +
+                "FROM provinces p " +
+                        "JOIN regions r ON p.region_id = r.id " +
+                "WHERE p.id > ? " +
+                "ORDER BY p.id LIMIT ?";
+        JdbcCursors.forEach(jdbcTemplate, sql, provinceRowMapper(), action, afterId, limit);
+    }
+
+    /**
+     * Filtra por {@code region_id}, que tiene índice por ser clave ajena: solo se leen las
+     * provincias de la región, no la tabla entera.
+     */
+    @Override
+    @ReadOnly
+    public void forEachProvinceOfRegion(long regionId, Consumer<Province> action) {
+        logger.debug("Entrando al metodo forEachProvinceOfRegion (regionId: {})", regionId);
+        String sql =
+                "SELECT p.id, p.code, p.name, r.id as region_id, r.code as region_code, r.name as region_name " +
+                "FROM provinces p " +
+                        "JOIN regions r ON p.region_id = r.id " +
+                "WHERE p.region_id = ?";
+        JdbcCursors.forEach(jdbcTemplate, sql, provinceRowMapper(), action, regionId);
+    }
+
+    /**
+     * Verifica si existe una provincia con el código especificado (sin distinguir mayúsculas).
+     * Busca por la columna indexada {@code code_norm} en lugar de aplicar {@code UPPER(code)}.
      * @param code código de la provincia a verificar.
      * @return true si existe, false en caso contrario.
      */
     @Override
+    @ReadOnly
     public boolean existsProvinceByCode(String code) {
-        logger.info("Checking if province with code: {} exists", code);
-
-        String sql = "SELECT COUNT(*) FROM provinces WHERE UPPER(code) = ?";
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, code.toUpperCase());
+        logger.debug("Checking if province with code: {} exists", code);
 
-        boolean exists = count != null && count > 0;
+        String sql = "SELECT EXISTS(SELECT 1 FROM provinces WHERE code_norm = ? LIMIT 1)";
+        boolean exists = Boolean.TRUE.equals(
+                jdbcTemplate.queryForObject(sql, Boolean.class, code.toUpperCase(Locale.ROOT)));
 
-        logger.info("Province with code: {} exists: {}", code, exists);
+        logger.debug("Province with code: {} exists: {}", code, exists);
 
         return exists;
     }
 
     @Override
+    @ReadOnly
     public boolean existsProvinceByCodeAndNotId(String code, Long id) {
-        logger.info("Verificando si existe la provincia con el codigo: {} e id: {}", code, id);
-        String sql = "SELECT COUNT(*) FROM provinces WHERE UPPER(code)=? AND id != ?";
+        logger.debug("Verificando si existe la provincia con el codigo: {} e id: {}", code, id);
+        String sql = "SELECT EXISTS(SELECT 1 FROM provinces WHERE code_norm = ? AND id != ? LIMIT 1)";
 
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, code.toUpperCase(), id);
-        boolean exists = count!=null && count >0 ;
-        logger.info("Provincia con codifo: {} existe con id: {}: {}", code, id, exists);
+        boolean exists = Boolean.TRUE.equals(
+                jdbcTemplate.queryForObject(sql, Boolean.class, code.toUpperCase(Locale.ROOT), id));
+        logger.debug("Provincia con codifo: {} existe con id: {}: {}", code, id, exists);
         return exists;
     }
 
 
     @Override
-    public void insertProvince(Province province) {
-        logger.info("Inserting province with code: {}, name {}, region{}",
+    public WriteOutcome insertProvince(Province province) {
+        logger.debug("Inserting province with code: {}, name {}, region{}",
                 province.getCode(),
                 province.getName(),
                 province.getRegion() != null ? province.getRegion().getId() : null);
 
         String sql = "INSERT INTO provinces (code, name, region_id) VALUES (?,?,?)";
-        int rowsAffected = jdbcTemplate.update(sql,
-                province.getCode(),
-                province.getName(),
-                province.getRegion() != null ? province.getRegion().getId() : null);
+        int rowsAffected;
+        try {
+            rowsAffected = jdbcTemplate.update(sql,
+                    province.getCode(),
+                    province.getName(),
+                    province.getRegion() != null ? province.getRegion().getId() : null);
+        } catch (DuplicateKeyException e) {
+            logger.debug("El código de provincia {} ya existe", province.getCode());
+            return WriteOutcome.DUPLICATE;
+        }
+        version.increment();
 
-        logger.info("Inserted province. Rows affected:  {}", rowsAffected);
+        logger.debug("Inserted province. Rows affected:  {}", rowsAffected);
+        return WriteOutcome.WRITTEN;
     }
 
     @Override
-    public void updateProvince(Province province) {
-        logger.info("Actualizando provincia con id: {}", province.getId());
+    public int[] insertProvinces(List<Province> provinces) {
+        logger.debug("Insertando {} provincias en lotes de {}", provinces.size(), batchSize);
+        String sql = "INSERT INTO provinces (code, name, region_id) VALUES (?,?,?)";
+        int[][] counts;
+        try {
+            counts = jdbcTemplate.batchUpdate(sql, provinces, batchSize, (ps, province) -> {
+                ps.setString(1, province.getCode());
+                ps.setString(2, province.getName());
+                setRegionId(ps, 3, province);
+            });
+        } finally {
+            version.increment();
+        }
+        int[] rowsAffected = BatchResults.flatten(counts);
+        logger.debug("Inserted {} provinces in {} batches", rowsAffected.length, counts.length);
+        return rowsAffected;
+    }
+
+    @Override
+    public int[] updateProvinces(List<Province> provinces) {
+        logger.debug("Actualizando {} provincias en lotes de {}", provinces.size(), batchSize);
         String sql = "UPDATE provinces SET code = ?, name = ?, region_id = ? WHERE id = ?";
-        int rowsAffected = jdbcTemplate.update(sql,
-                province.getCode(),
-                province.getName(),
-                province.getRegion() != null ? province.getRegion().getId() : null,
-                province.getId()
-        );
+        int[][] counts;
+        try {
+            counts = jdbcTemplate.batchUpdate(sql, provinces, batchSize, (ps, province) -> {
+                ps.setString(1, province.getCode());
+                ps.setString(2, province.getName());
+                setRegionId(ps, 3, province);
+                ps.setLong(4, province.getId());
+            });
+        } finally {
+            version.increment();
+        }
+        int[] rowsAffected = BatchResults.flatten(counts);
+        logger.debug("Updated {} provinces in {} batches", rowsAffected.length, counts.length);
+        return rowsAffected;
+    }
+
+    private static void setRegionId(PreparedStatement ps, int index, Province province) throws SQLException {
+        if (province.getRegion() != null && province.getRegion().getId() != null) {
+            ps.setLong(index, province.getRegion().getId());
+        } else {
+            ps.setNull(index, Types.INTEGER);
+        }
+    }
+
+    @Override
+    public WriteOutcome updateProvince(Province province) {
+        logger.debug("Actualizando provincia con id: {}", province.getId());
+        String sql = "UPDATE provinces SET code = ?, name = ?, region_id = ? WHERE id = ?";
+        int rowsAffected;
+        try {
+            rowsAffected = jdbcTemplate.update(sql,
+                    province.getCode(),
+                    province.getName(),
+                    province.getRegion() != null ? province.getRegion().getId() : null,
+                    province.getId()
+            );
+        } catch (DuplicateKeyException e) {
+            logger.debug("El código de provincia {} ya existe en otra provincia", province.getCode());
+            return WriteOutcome.DUPLICATE;
+        }
+        version.increment();
 
-        logger.info("Actualizado provincias. Lines afectadas: {}", rowsAffected);
+        logger.debug("Actualizado provincias. Lines afectadas: {}", rowsAffected);
+        return WriteOutcome.WRITTEN;
     }
 
     @Override
+    @ReadOnly
     public Province getProvinceById(Long id) {
-        logger.info("Retrieving province by id: {}", id);
+        logger.debug("Retrieving province by id: {}", id);
         String sql =  "SELECT p.id, p.code, p.name, r.id as region_id, r.code as region_code, r.name as region_name" +
                 " FROM provinces p " +
                 "JOIN regions r ON p.region_id = r.id" +
                 " WHERE p.id=?";
         try{
-            Province province = jdbcTemplate.queryForObject(sql, provinceRowMapper, id);
+            Province province = jdbcTemplate.queryForObject(sql, provinceRowMapper(), id);
             if (province != null){
-                logger.info("Province retrieved: {} - {}", province.getCode(), province.getName() );
+                logger.debug("Province retrieved: {} - {}", province.getCode(), province.getName() );
             }
             return province;
         }catch (Exception e){
-            logger.warn("No province found with id: {}", id);
+            logger.debug("No province found with id: {}", id);
             return null;
         }
 
@@ -142,10 +339,11 @@ public class ProvinceDaoImple implements ProvinceDAO{
 
     @Override
     public void deleteProvince(Long id){
-        logger.error("Eliminando provincia con id: {}", id);
+        logger.debug("Eliminando provincia con id: {}", id);
         String sql = "DELETE FROM provinces WHERE id = ?";
         int rowsAffected = jdbcTemplate.update(sql, id);
-        logger.info("Provincia eliminada. Lines afectadas: {}", rowsAffected);
+        version.increment();
+        logger.debug("Provincia eliminada. Lines afectadas: {}", rowsAffected);
 
     }
 
@@ -4,16 +4,71 @@ import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Region
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface RegionDAO {
 
     List<Region> listAllRegions() ;
-    void insertRegion(Region region) ;
+
+    /**
+     * Versión de la tabla en este proceso: empieza en 0 al arrancar y aumenta con cada
+     * escritura hecha a través de este DAO. Sirve para saber si un listado ha cambiado sin
+     * consultar la base de datos (ETags de los listados).
+     *
+     * @return la versión actual
+     */
+    long getVersion() ;
+
+    /**
+     * Inserta una región. Si el código ya existe no se escribe nada.
+     *
+     * @return {@link WriteOutcome#DUPLICATE} si el código ya es de otra región
+     */
+    WriteOutcome insertRegion(Region region) ;
 
     boolean existsRegionByCode(String code);
 
-    void updateRegion(Region region) ;
+    /**
+     * Actualiza una región por id. Si el nuevo código ya es de otra región no se escribe nada.
+     *
+     * @return {@link WriteOutcome#DUPLICATE} si el código ya es de otra región
+     */
+    WriteOutcome updateRegion(Region region) ;
     Region getRegionById(Long id) ;
     boolean existsRegionByCodeAndNotId(String code, Long id) ;
     void deleteRegion(Long id) ;
+
+    /**
+     * Inserta varias regiones usando lotes JDBC.
+     *
+     * @param regions regiones a insertar
+     * @return un resultado por región, en el mismo orden: filas afectadas o
+     *         {@link java.sql.Statement#SUCCESS_NO_INFO} si el driver no lo informa
+     */
+    int[] insertRegions(List<Region> regions);
+
+    /**
+     * Recorre todas las regiones, ordenadas por id, entregándolas una a una.
+     *
+     * @param action acción a ejecutar con cada región
+     */
+    void forEachRegion(Consumer<Region> action);
+
+    /**
+     * Recorre, ordenadas por id, hasta {@code limit} regiones con id mayor que {@code afterId},
+     * entregándolas una a una (paginación por clave para la API REST).
+     *
+     * @param afterId id de la última región ya leída (0 para empezar desde el principio)
+     * @param limit número máximo de regiones
+     * @param action acción a ejecutar con cada región
+     */
+    void forEachRegion(long afterId, int limit, Consumer<Region> action);
+
+    /**
+     * Actualiza varias regiones (por id) usando lotes JDBC.
+     *
+     * @param regions regiones a actualizar
+     * @return un resultado por región, en el mismo orden (ver {@link #insertRegions(List)})
+     */
+    int[] updateRegions(List<Region> regions);
 }
\ No newline at end of file
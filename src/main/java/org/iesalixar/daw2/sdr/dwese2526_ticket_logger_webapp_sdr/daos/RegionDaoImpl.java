@@ -1,63 +1,298 @@
 package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.datasource.ReadOnly;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Region;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
-
+import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementación de {@link RegionDAO} con una caché en memoria de la tabla <code>regions</code>.
+ * <p>
+ * Las regiones son una tabla pequeña y casi estática, así que las lecturas
+ * ({@code listAllRegions}, {@code getRegionById} y {@code existsRegionByCode*}) se sirven
+ * desde una {@link RegionSnapshot} inmutable, y cada llamada recibe sus propias copias de las
+ * regiones, como con la caché de entidades. La instantánea se carga en el primer acceso
+ * y se reconstruye y sustituye de forma atómica después de cada escritura
+ * ({@code insertRegion}, {@code updateRegion} y {@code deleteRegion}).
+ * </p>
+ * <p>
+ * Si la escritura forma parte de una transacción (importaciones CSV), la instantánea se recarga
+ * una sola vez, al terminar la transacción: recargarla antes publicaría filas sin confirmar, que
+ * además no existirían si hay rollback. Mientras tanto, también dentro de la transacción, se sigue
+ * sirviendo la instantánea anterior.
+ * </p>
+ */
 @Repository
-public class RegionDaoImpl implements RegionDAO{
+public class RegionDaoImpl implements RegionDAO, MeterBinder {
 
     private static final Logger logger = LoggerFactory.getLogger(RegionDaoImpl.class);
 
     private final JdbcTemplate jdbcTemplate;
 
+    // Instantánea actual de la tabla; null hasta la primera carga o si falló la última recarga
+    private final AtomicReference<RegionSnapshot> snapshot = new AtomicReference<>();
+
+    // Serializa las recargas para que una carga antigua no pise a una más reciente.
+    // Se usa ReentrantLock y no synchronized para no bloquear hilos virtuales durante el acceso JDBC.
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    // Versión de la tabla para los ETags de los listados; se incrementa al recargar la instantánea
+    private final TableVersion version = new TableVersion();
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    // Número de filas por lote en insertRegions/updateRegions
+    @Value("${app.jdbc.batch-size:500}")
+    private int batchSize = 500;
+
+    // Mapeador precompilado por posición de columna: el SELECT debe pedir "id, code, name" en este orden.
+    // Es estático y sin estado, así que no hay introspección del bean ni reflexión por fila.
+    static final RowMapper<Region> regionRowMapper = (rs, rowNum) ->
+            new Region(rs.getLong(1), rs.getString(2), rs.getString(3));
+
     public RegionDaoImpl(JdbcTemplate jdbcTemplate){
         this.jdbcTemplate=jdbcTemplate;
     }
 
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    // Las lecturas servidas desde la instantánea no llevan @ReadOnly: la instantánea se carga del
+    // primario, así que refleja siempre la última escritura aunque haya réplica de lectura
     @Override
     public List<Region> listAllRegions()  {
-        logger.info("Entrando en el metodo listAllRegions");
-        String sql = "SELECT * FROM regions";
-        List<Region> regions = jdbcTemplate.query(sql, new BeanPropertyRowMapper<>(Region.class));
-        logger.info("Retrieved {} regions from the database", regions.size());
+        logger.debug("Entrando en el metodo listAllRegions");
+        List<Region> regions = currentSnapshot().getRegions().stream().map(Region::copy).toList();
+        logger.debug("Retrieved {} regions from the cache", regions.size());
         return regions;
     }
 
+    /**
+     * Recorre la tabla directamente con un cursor (ver {@link JdbcCursors}) en lugar de la
+     * instantánea, para exportar exactamente lo que hay en la base de datos.
+     */
+    @Override
+    @ReadOnly
+    public void forEachRegion(Consumer<Region> action) {
+        logger.debug("Entrando en el metodo forEachRegion");
+        JdbcCursors.forEach(jdbcTemplate, "SELECT id, code, name FROM regions ORDER BY id", regionRowMapper, action);
+    }
+
+    @Override
+    @ReadOnly
+    public void forEachRegion(long afterId, int limit, Consumer<Region> action) {
+        logger.debug("Entrando en el metodo forEachRegion (afterId: {}, limit: {})", afterId, limit);
+        JdbcCursors.forEach(jdbcTemplate, "SELECT id, code, name FROM regions WHERE id > ? ORDER BY id LIMIT ?",
+                regionRowMapper, action, afterId, limit);
+    }
+
+    /**
+     * Publica los aciertos y fallos de la caché como {@code regions.cache.requests}.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("regions.cache.requests", this, RegionDaoImpl::getCacheHits)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("regions.cache.requests", this, RegionDaoImpl::getCacheMisses)
+                .tag("result", "miss")
+                .register(registry);
+    }
+
+    /**
+     * @return número de lecturas servidas desde la instantánea en memoria.
+     */
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * @return número de lecturas que han tenido que cargar la instantánea desde la base de datos.
+     */
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    /**
+     * Devuelve la instantánea actual, cargándola desde la base de datos si todavía no existe.
+     */
+    private RegionSnapshot currentSnapshot() {
+        RegionSnapshot current = snapshot.get();
+        if (current != null) {
+            cacheHits.increment();
+            return current;
+        }
+        reloadLock.lock();
+        try {
+            current = snapshot.get();
+            if (current == null) {
+                cacheMisses.increment();
+                current = loadSnapshot();
+                // Cargada con la conexión de la transacción: puede llevar filas sin confirmar
+                if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+                    snapshot.set(current);
+                }
+            } else {
+                cacheHits.increment();
+            }
+            return current;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * Reconstruye la instantánea después de una escritura, o al terminar la transacción si la hay,
+     * y después incrementa la versión: un listado con la versión nueva ya sale de la instantánea
+     * nueva.
+     */
+    private void refreshSnapshot() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            reloadSnapshotAfterCompletion();
+        } else {
+            reloadSnapshot();
+        }
+        version.increment();
+    }
+
+    /**
+     * Registra la recarga al terminar la transacción (con commit o con rollback), una sola vez por
+     * transacción aunque haya varias escrituras. Se registra antes que el incremento de
+     * {@link TableVersion}, así que también se ejecuta antes.
+     */
+    private void reloadSnapshotAfterCompletion() {
+        if (TransactionSynchronizationManager.hasResource(snapshot)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(snapshot, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(snapshot);
+                reloadSnapshot();
+            }
+        });
+    }
+
+    /**
+     * Mientras se recarga, los lectores siguen viendo la instantánea anterior; si la recarga falla
+     * se descarta para que la siguiente lectura vuelva a la base de datos.
+     */
+    private void reloadSnapshot() {
+        reloadLock.lock();
+        try {
+            snapshot.set(loadSnapshot());
+        } catch (RuntimeException e) {
+            snapshot.set(null);
+            logger.warn("No se ha podido recargar la cache de regiones: {}", e.getMessage());
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private RegionSnapshot loadSnapshot() {
+        String sql = "SELECT id, code, name FROM regions";
+        List<Region> regions = jdbcTemplate.query(sql, regionRowMapper);
+        logger.debug("Retrieved {} regions from the database", regions.size());
+        return RegionSnapshot.of(regions);
+    }
+
 
     @Override
-    public void insertRegion(Region region)  {
-        logger.info("Insertando region");
+    public WriteOutcome insertRegion(Region region)  {
+        logger.debug("Insertando region");
         String sql = "INSERT INTO regions (code, name) VALUES (?, ?)";
-        int rowsAffected = jdbcTemplate.update(sql, region.getCode(), region.getName());
-        logger.info("Inserted region. Rows affected: {}", rowsAffected);
+        int rowsAffected;
+        try {
+            rowsAffected = jdbcTemplate.update(sql, region.getCode(), region.getName());
+        } catch (DuplicateKeyException e) {
+            logger.debug("El código de región {} ya existe", region.getCode());
+            return WriteOutcome.DUPLICATE;
+        }
+        logger.debug("Inserted region. Rows affected: {}", rowsAffected);
+        refreshSnapshot();
+        return WriteOutcome.WRITTEN;
+    }
 
 
+    @Override
+    public int[] insertRegions(List<Region> regions) {
+        logger.debug("Insertando {} regiones en lotes de {}", regions.size(), batchSize);
+        String sql = "INSERT INTO regions (code, name) VALUES (?, ?)";
+        try {
+            int[][] counts = jdbcTemplate.batchUpdate(sql, regions, batchSize, (ps, region) -> {
+                ps.setString(1, region.getCode());
+                ps.setString(2, region.getName());
+            });
+            int[] rowsAffected = BatchResults.flatten(counts);
+            logger.debug("Inserted {} regions in {} batches", rowsAffected.length, counts.length);
+            return rowsAffected;
+        } finally {
+            // Aunque falle un lote, los anteriores ya se han escrito
+            refreshSnapshot();
+        }
     }
 
+    @Override
+    public int[] updateRegions(List<Region> regions) {
+        logger.debug("Actualizando {} regiones en lotes de {}", regions.size(), batchSize);
+        String sql = "UPDATE regions SET code = ?, name = ? WHERE id = ?";
+        try {
+            int[][] counts = jdbcTemplate.batchUpdate(sql, regions, batchSize, (ps, region) -> {
+                ps.setString(1, region.getCode());
+                ps.setString(2, region.getName());
+                ps.setLong(3, region.getId());
+            });
+            int[] rowsAffected = BatchResults.flatten(counts);
+            logger.debug("Updated {} regions in {} batches", rowsAffected.length, counts.length);
+            return rowsAffected;
+        } finally {
+            refreshSnapshot();
+        }
+    }
 
     @Override
     public boolean existsRegionByCode(String code) {
-        logger.info("Entrando en el metodo existsRegionByCode");
-        String sql = "SELECT COUNT(*) FROM regions WHERE UPPER(code) = ?";
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, code.toUpperCase());
-        boolean exists = count != null && count > 0;
-        logger.info("Region con codigo: {} existe: {}", code, exists);
+        logger.debug("Entrando en el metodo existsRegionByCode");
+        boolean exists = currentSnapshot().getByCode(code) != null;
+        logger.debug("Region con codigo: {} existe: {}", code, exists);
         return exists;
     }
 
 
     @Override
-    public void updateRegion(Region region)  {
-        logger.info("Updating region with id: {}", region.getId());
+    public WriteOutcome updateRegion(Region region)  {
+        logger.debug("Updating region with id: {}", region.getId());
         String sql = "UPDATE regions SET code = ?, name = ? WHERE id = ?";
-        int rowsAffected = jdbcTemplate.update(sql, region.getCode(), region.getName(), region.getId());
-        logger.info("Updated region. Rows affected: {}", rowsAffected);
+        int rowsAffected;
+        try {
+            rowsAffected = jdbcTemplate.update(sql, region.getCode(), region.getName(), region.getId());
+        } catch (DuplicateKeyException e) {
+            logger.debug("El código de región {} ya existe en otra región", region.getCode());
+            return WriteOutcome.DUPLICATE;
+        }
+        logger.debug("Updated region. Rows affected: {}", rowsAffected);
+        refreshSnapshot();
+        return WriteOutcome.WRITTEN;
     }
 
 
@@ -65,13 +300,16 @@ public class RegionDaoImpl implements RegionDAO{
 
     @Override
     public Region getRegionById(Long id) {
-        logger.info("Entrando en el metodo getRegionbyId");
+        logger.debug("Entrando en el metodo getRegionbyId");
 
-        String sql = "SELECT * FROM regions WHERE id = ?";
         try {
-            Region region = jdbcTemplate.queryForObject(sql, new BeanPropertyRowMapper<>(Region.class), id);
-            logger.info("Saliendo del metodo getRegionbyId {} - {}" , region.getCode(), region.getId());
-            return region;
+            Region region = currentSnapshot().getById(id);
+            if (region == null) {
+                logger.debug("Region no encontrado con el siguiente id: {}", id);
+                return null;
+            }
+            logger.debug("Saliendo del metodo getRegionbyId {} - {}" , region.getCode(), region.getId());
+            return region.copy();
         } catch (Exception e) {
             logger.warn("Region no encontrado con el siguiente id: {}", id);
             return null;
@@ -82,21 +320,21 @@ public class RegionDaoImpl implements RegionDAO{
 
     @Override
     public boolean existsRegionByCodeAndNotId(String code, Long id) {
-        logger.info("Entrando al metodo existsRegionByCodeAndNotId");
-        String sql = "SELECT COUNT(*) FROM regions WHERE UPPER(code) = ? AND id != ?";
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, code.toUpperCase(), id);
-        boolean exists = count != null && count > 0;
-        logger.info("Region with code: {} exists excluding id: {}: {}", code, id, exists);
+        logger.debug("Entrando al metodo existsRegionByCodeAndNotId");
+        Region region = currentSnapshot().getByCode(code);
+        boolean exists = region != null && !region.getId().equals(id);
+        logger.debug("Region with code: {} exists excluding id: {}: {}", code, id, exists);
         return exists;
     }
 
 
     @Override
     public void deleteRegion(Long id) {
-        logger.info("Entrando al metodo deleteRegion");
+        logger.debug("Entrando al metodo deleteRegion");
         String sql = "DELETE FROM regions WHERE id = ?";
         int rowsAffected = jdbcTemplate.update(sql, id);
-        logger.info("Deleted region. Rows affected: {}", rowsAffected);
+        logger.debug("Deleted region. Rows affected: {}", rowsAffected);
+        refreshSnapshot();
 
 
     }
@@ -0,0 +1,73 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Region;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Regiones canónicas de una consulta de provincias: todas las provincias de la misma región
+ * comparten un único {@link Region}, así que un listado de 100.000 provincias crea tantas
+ * regiones como haya distintas (18 en <code>data.sql</code>) y solo lee el código y el nombre
+ * de la región la primera vez que aparece.
+ * <p>
+ * Tabla hash de direccionamiento abierto con claves {@code long} primitivas (sin {@code Long}
+ * por fila). No es segura entre hilos: se crea una por consulta (ver
+ * {@code ProvinceDaoImple.provinceRowMapper()}), de modo que las regiones compartidas no salen
+ * de un mismo resultado.
+ * </p>
+ */
+final class RegionInterner {
+
+    private static final int INITIAL_CAPACITY = 32;
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private Region[] regions = new Region[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Devuelve la región con el id de la columna {@code idColumn}; si es la primera vez que
+     * aparece, la crea con las columnas {@code codeColumn} y {@code nameColumn} de la fila actual.
+     */
+    Region intern(ResultSet rs, String idColumn, String codeColumn, String nameColumn) throws SQLException {
+        long id = rs.getLong(idColumn);
+        int mask = ids.length - 1;
+        int slot = slot(id, mask);
+        while (regions[slot] != null) {
+            if (ids[slot] == id) {
+                return regions[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        Region region = new Region(id, rs.getString(codeColumn), rs.getString(nameColumn));
+        ids[slot] = id;
+        regions[slot] = region;
+        if (++size * 2 > ids.length) {
+            grow();
+        }
+        return region;
+    }
+
+    private void grow() {
+        long[] oldIds = ids;
+        Region[] oldRegions = regions;
+        ids = new long[oldIds.length * 2];
+        regions = new Region[oldRegions.length * 2];
+        int mask = ids.length - 1;
+        for (int i = 0; i < oldRegions.length; i++) {
+            if (oldRegions[i] != null) {
+                int slot = slot(oldIds[i], mask);
+                while (regions[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                ids[slot] = oldIds[i];
+                regions[slot] = oldRegions[i];
+            }
+        }
+    }
+
+    private static int slot(long id, int mask) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
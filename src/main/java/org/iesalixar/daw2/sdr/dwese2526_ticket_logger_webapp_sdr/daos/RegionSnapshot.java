@@ -0,0 +1,71 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
+
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Region;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Instantánea inmutable de la tabla <code>regions</code>.
+ * <p>
+ * Contiene la lista completa de regiones, un índice por id y un índice por código
+ * en mayúsculas (las comprobaciones de código no distinguen mayúsculas/minúsculas).
+ * Una vez construida no se modifica: cuando cambian los datos se crea una nueva
+ * instantánea y se sustituye de forma atómica en {@link RegionDaoImpl}.
+ * </p>
+ *
+ * <p>Las regiones de la instantánea las comparten todos los lectores y no salen de
+ * {@link RegionDaoImpl}, que entrega copias.</p>
+ */
+final class RegionSnapshot {
+
+    private final List<Region> regions;
+    private final Map<Long, Region> regionsById;
+    private final Map<String, Region> regionsByCode;
+
+    private RegionSnapshot(List<Region> regions, Map<Long, Region> regionsById, Map<String, Region> regionsByCode) {
+        this.regions = regions;
+        this.regionsById = regionsById;
+        this.regionsByCode = regionsByCode;
+    }
+
+    /**
+     * Construye una instantánea a partir de las regiones leídas de la base de datos.
+     *
+     * @param regions regiones en el orden en que se deben listar
+     * @return la instantánea con sus índices ya calculados
+     */
+    static RegionSnapshot of(List<Region> regions) {
+        Map<Long, Region> byId = new HashMap<>();
+        Map<String, Region> byCode = new HashMap<>();
+        for (Region region : regions) {
+            byId.put(region.getId(), region);
+            if (region.getCode() != null) {
+                byCode.put(region.getCode().toUpperCase(Locale.ROOT), region);
+            }
+        }
+        return new RegionSnapshot(List.copyOf(regions), Map.copyOf(byId), Map.copyOf(byCode));
+    }
+
+    List<Region> getRegions() {
+        return regions;
+    }
+
+    Region getById(Long id) {
+        return id != null ? regionsById.get(id) : null;
+    }
+
+    /**
+     * @param code código de la región; se compara en mayúsculas
+     * @return la región con ese código o {@code null} si no existe
+     */
+    Region getByCode(String code) {
+        return regionsByCode.get(code.toUpperCase(Locale.ROOT));
+    }
+
+    int size() {
+        return regions.size();
+    }
+}
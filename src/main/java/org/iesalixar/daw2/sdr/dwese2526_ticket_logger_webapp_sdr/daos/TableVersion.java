@@ -0,0 +1,36 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contador de versión de una tabla, incrementado por su DAO en cada escritura.
+ * <p>
+ * Si la escritura forma parte de una transacción (por ejemplo una importación CSV), el
+ * contador se incrementa también al terminar la transacción: un listado leído entre la
+ * escritura y el commit no ve los cambios todavía, y con la versión de ese momento su ETag
+ * quedaría como válido después del commit.
+ * </p>
+ */
+final class TableVersion {
+
+    private final AtomicLong value = new AtomicLong();
+
+    long get() {
+        return value.get();
+    }
+
+    void increment() {
+        value.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    value.incrementAndGet();
+                }
+            });
+        }
+    }
+}
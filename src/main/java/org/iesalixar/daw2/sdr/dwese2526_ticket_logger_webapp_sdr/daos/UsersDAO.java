@@ -1,10 +1,12 @@
 package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
 
 
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.UserListItem;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Users;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Interfaz que define las operaciones de acceso a datos (DAO) para la entidad {@link Users}.
@@ -36,13 +38,75 @@ public interface UsersDAO {
      */
     List<Users> listAllUsers() ;
 
+    /**
+     * Versión de la tabla en este proceso: empieza en 0 al arrancar y aumenta con cada
+     * escritura hecha a través de este DAO. Sirve para saber si un listado ha cambiado sin
+     * consultar la base de datos (ETags de los listados).
+     *
+     * @return la versión actual
+     */
+    long getVersion() ;
+
+    /**
+     * Obtiene una página de usuarios ordenados por id mediante paginación por clave (keyset / seek).
+     * <p>En lugar de usar {@code OFFSET}, se continúa a partir del último usuario de la
+     * página anterior, por lo que el coste de cada página depende solo de su tamaño
+     * y no del número total de usuarios.</p>
+     *
+     * @param afterId el id del último usuario de la página anterior, o {@code null} para la primera página.
+     * @param limit el número máximo de usuarios a devolver.
+     * @return una lista con, como máximo, {@code limit} usuarios, solo con las columnas del
+     *         listado ({@link UserListItem}; el formulario de edición usa {@link #getUsersById(long)}).
+     */
+    List<UserListItem> listUsersPage(Long afterId, int limit) ;
+
+    /**
+     * Como {@link #listUsersPage(Long, int)}, pero ordenando por nombre de usuario. El cursor es
+     * el propio username (único), así que la página siguiente no depende de que ese usuario siga
+     * existiendo ni de que no lo hayan renombrado.
+     *
+     * @param afterUsername el username del último usuario de la página anterior, o {@code null} para la primera página.
+     * @param limit el número máximo de usuarios a devolver.
+     * @return una lista con, como máximo, {@code limit} usuarios.
+     */
+    List<UserListItem> listUsersPageByUsername(String afterUsername, int limit) ;
+
+    /**
+     * Recorre todos los usuarios, ordenados por id, entregándolos uno a uno según se leen
+     * de la base de datos, sin cargar la tabla completa en memoria (útil para exportaciones).
+     *
+     * @param action acción a ejecutar con cada usuario.
+     */
+    void forEachUser(Consumer<Users> action) ;
+
+    /**
+     * Recorre, ordenados por id, hasta {@code limit} usuarios con id mayor que {@code afterId},
+     * entregándolos uno a uno (paginación por clave para la API REST).
+     *
+     * @param afterId id de el último usuario ya leído (0 para empezar desde el principio)
+     * @param limit número máximo de usuarios
+     * @param action acción a ejecutar con cada usuario
+     */
+    void forEachUser(long afterId, int limit, Consumer<Users> action) ;
+
+    /**
+     * Busca usuarios cuyo username empieza por {@code prefix}, sin distinguir mayúsculas,
+     * ordenados por username.
+     *
+     * @param prefix comienzo del username
+     * @param limit número máximo de resultados
+     * @return como mucho {@code limit} usuarios, con las columnas del listado
+     */
+    List<UserListItem> searchUsersByUsernamePrefix(String prefix, int limit) ;
+
     /**
      * Inserta un nuevo usuario en la base de datos.
      *
      * @param user el objeto {@link Users} que contiene la información del nuevo usuario a registrar.
+     * @return {@link WriteOutcome#DUPLICATE}, sin escribir nada, si el username ya existe.
      * @throws SQLException si ocurre un error durante la inserción.
      */
-    void insertUser(Users user) ;
+    WriteOutcome insertUser(Users user) ;
 
     /**
      * Verifica si existe un usuario con un nombre de usuario específico.
@@ -74,9 +138,10 @@ public interface UsersDAO {
      * Actualiza la información de un usuario existente en la base de datos.
      *
      * @param updated el objeto {@link Users} que contiene los nuevos datos del usuario.
+     * @return {@link WriteOutcome#DUPLICATE}, sin escribir nada, si el username ya es de otro usuario.
      * @throws SQLException si ocurre un error durante la actualización.
      */
-    void updateUsers(Users updated) ;
+    WriteOutcome updateUsers(Users updated) ;
 
     /**
      * Verifica si existe un usuario con un nombre de usuario específico,
@@ -88,4 +153,22 @@ public interface UsersDAO {
      * @throws SQLException si ocurre un error al ejecutar la consulta.
      */
     boolean existsUserByUsernameAndNotId(String username, long id) ;
+
+    /**
+     * Inserta varios usuarios usando lotes JDBC, en bloques del tamaño configurado
+     * ({@code app.jdbc.batch-size}).
+     *
+     * @param users la lista de usuarios a registrar.
+     * @return un resultado por usuario, en el mismo orden: filas afectadas o
+     *         {@link java.sql.Statement#SUCCESS_NO_INFO} si el driver no lo informa.
+     */
+    int[] insertUsers(List<Users> users) ;
+
+    /**
+     * Actualiza varios usuarios existentes (por id) usando lotes JDBC.
+     *
+     * @param users la lista de usuarios con los nuevos datos.
+     * @return un resultado por usuario, en el mismo orden (ver {@link #insertUsers(List)}).
+     */
+    int[] updateUsers(List<Users> users) ;
 }
@@ -1,15 +1,21 @@
 package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
 
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.datasource.ReadOnly;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.UserListItem;
 import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Users;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
 
 /**
  *  Implementación de la interfaz {@link UsersDAO} que gestiona las operaciones CRUD
@@ -17,6 +23,10 @@ import java.util.List;
  *
  * <p>Esta clase utiliza {@link JdbcTemplate} para la interacción con la base de datos.</p>
  *
+ * <p>La unicidad del username la garantiza el índice único sobre {@code username_norm}: las
+ * altas y modificaciones no consultan antes si existe, sino que devuelven
+ * {@link WriteOutcome#DUPLICATE} cuando el índice las rechaza.</p>
+ *
  * @author Salvador Diaz Roman
  * @version 2.0 (Adaptado a JdbcTemplate)
  */
@@ -27,6 +37,56 @@ public class UsersDaoImple implements UsersDAO {
 
     private final JdbcTemplate jdbcTemplate;
 
+    // Número de filas por lote en insertUsers/updateUsers(List)
+    @Value("${app.jdbc.batch-size:500}")
+    private int batchSize = 500;
+
+    // Versión de la tabla para los ETags de los listados; los lotes la incrementan aunque fallen a medias
+    private final TableVersion version = new TableVersion();
+
+    // Columnas de la tabla users en el orden que espera usersRowMapper
+    private static final String USER_COLUMNS = """
+            id, username, passwordHash, active, accountNonLocked, lastPasswordChange,
+            passwordExpiresAt, failedLoginAttempts, emailVerified, mustChangePassword""";
+
+    /**
+     * Mapeador precompilado por posición de columna (ver {@link #USER_COLUMNS}).
+     * Sustituye a {@code BeanPropertyRowMapper}, que introspeccionaba el bean en cada llamada
+     * y resolvía las columnas por nombre y los setters por reflexión en cada fila.
+     */
+    static final RowMapper<Users> usersRowMapper = (rs, rowNum) -> new Users(
+            rs.getLong(1),
+            rs.getString(2),
+            rs.getString(3),
+            rs.getBoolean(4),
+            rs.getBoolean(5),
+            toLocalDateTime(rs.getTimestamp(6)),
+            toLocalDateTime(rs.getTimestamp(7)),
+            rs.getInt(8),
+            rs.getBoolean(9),
+            rs.getBoolean(10));
+
+    // Columnas del listado de usuarios, en el orden que espera userListItemRowMapper (sin passwordHash)
+    private static final String USER_LIST_COLUMNS = """
+            id, username, lastPasswordChange, passwordExpiresAt, failedLoginAttempts,
+            active, accountNonLocked, emailVerified, mustChangePassword""";
+
+    /**
+     * Mapeador del listado ({@link #USER_LIST_COLUMNS}): los cuatro booleanos se empaquetan
+     * en el {@code byte} de {@link UserListItem#flags()}.
+     */
+    static final RowMapper<UserListItem> userListItemRowMapper = (rs, rowNum) -> new UserListItem(
+            rs.getLong(1),
+            rs.getString(2),
+            toLocalDateTime(rs.getTimestamp(3)),
+            toLocalDateTime(rs.getTimestamp(4)),
+            rs.getInt(5),
+            UserListItem.flags(rs.getBoolean(6), rs.getBoolean(7), rs.getBoolean(8), rs.getBoolean(9)));
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
     /**
      * 🛠️ Constructor que inyecta la dependencia de JdbcTemplate.
      * @param jdbcTemplate el objeto JdbcTemplate proporcionado por Spring.
@@ -35,29 +95,118 @@ public class UsersDaoImple implements UsersDAO {
         this.jdbcTemplate = jdbcTemplate;
     }
 
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
     /**
      * Obtiene una lista de todos los usuarios registrados en la base de datos.
      *
      * @return una lista de objetos {@link Users} que representan todos los usuarios
      */
     @Override
+    @ReadOnly
     public List<Users> listAllUsers() {
-        logger.info("Entrando en el metodo listAllUsers");
-        String sql = "SELECT * FROM users";
-        // Usa BeanPropertyRowMapper para mapear automáticamente las columnas a los campos de la clase Users
-        List<Users> users = jdbcTemplate.query(sql, new BeanPropertyRowMapper<>(Users.class));
-        logger.info("Retrieved {} users from the database", users.size());
+        logger.debug("Entrando en el metodo listAllUsers");
+        String sql = "SELECT " + USER_COLUMNS + " FROM users";
+        List<Users> users = jdbcTemplate.query(sql, usersRowMapper);
+        logger.debug("Retrieved {} users from the database", users.size());
+        return users;
+    }
+
+    /**
+     * Obtiene una página de usuarios usando paginación por clave (seek) sobre {@code id}
+     * (PRIMARY KEY), así que cada página es un recorrido acotado del índice.
+     *
+     * @param afterId el id del último usuario de la página anterior, o {@code null} para la primera página
+     * @param limit el número máximo de usuarios a devolver
+     * @return una lista con, como máximo, {@code limit} usuarios
+     */
+    @Override
+    @ReadOnly
+    public List<UserListItem> listUsersPage(Long afterId, int limit) {
+        logger.debug("Entrando en el metodo listUsersPage (afterId: {}, limit: {})", afterId, limit);
+        String sql = "SELECT " + USER_LIST_COLUMNS + " FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        List<UserListItem> users = jdbcTemplate.query(sql, userListItemRowMapper,
+                afterId != null ? afterId : 0L, limit);
+        logger.debug("Retrieved {} users for the requested page", users.size());
         return users;
     }
 
+    /**
+     * Obtiene una página de usuarios usando paginación por clave (seek) sobre {@code username}.
+     * La columna es UNIQUE, así que el username del último usuario basta como cursor y
+     * {@code username > ?} es un recorrido acotado de su índice.
+     *
+     * @param afterUsername el username del último usuario de la página anterior, o {@code null} para la primera página
+     * @param limit el número máximo de usuarios a devolver
+     * @return una lista con, como máximo, {@code limit} usuarios
+     */
+    @Override
+    @ReadOnly
+    public List<UserListItem> listUsersPageByUsername(String afterUsername, int limit) {
+        logger.debug("Entrando en el metodo listUsersPageByUsername (afterUsername: {}, limit: {})",
+                afterUsername, limit);
+        List<UserListItem> users;
+        if (afterUsername == null) {
+            String sql = "SELECT " + USER_LIST_COLUMNS + " FROM users ORDER BY username LIMIT ?";
+            users = jdbcTemplate.query(sql, userListItemRowMapper, limit);
+        } else {
+            String sql = "SELECT " + USER_LIST_COLUMNS + " FROM users WHERE username > ? ORDER BY username LIMIT ?";
+            users = jdbcTemplate.query(sql, userListItemRowMapper, afterUsername, limit);
+        }
+        logger.debug("Retrieved {} users for the requested page", users.size());
+        return users;
+    }
+
+    /**
+     * Recorre la tabla {@code users} con un cursor en streaming (ver {@link JdbcCursors}).
+     *
+     * @param action acción a ejecutar con cada usuario
+     */
+    @Override
+    @ReadOnly
+    public void forEachUser(Consumer<Users> action) {
+        logger.debug("Entrando en el metodo forEachUser");
+        String sql = "SELECT " + USER_COLUMNS + " FROM users ORDER BY id";
+        JdbcCursors.forEach(jdbcTemplate, sql, usersRowMapper, action);
+    }
+
+    /**
+     * Búsqueda por prefijo sobre {@code username_norm}: el {@code LIKE 'X%'} recorre solo el tramo
+     * del índice único que empieza por el prefijo, ya en orden, y se detiene en {@code limit}.
+     */
+    @Override
+    @ReadOnly
+    public List<UserListItem> searchUsersByUsernamePrefix(String prefix, int limit) {
+        logger.debug("Buscando usuarios por prefijo '{}' (limit: {})", prefix, limit);
+        String sql = "SELECT " + USER_LIST_COLUMNS + " FROM users WHERE username_norm LIKE ? ORDER BY username_norm LIMIT ?";
+        List<UserListItem> users = jdbcTemplate.query(sql, userListItemRowMapper, LikePatterns.prefix(prefix), limit);
+        logger.debug("Found {} users", users.size());
+        return users;
+    }
+
+    /**
+     * Recorre una página de usuarios por id con un cursor en streaming (ver {@link JdbcCursors}).
+     */
+    @Override
+    @ReadOnly
+    public void forEachUser(long afterId, int limit, Consumer<Users> action) {
+        logger.debug("Entrando en el metodo forEachUser (afterId: {}, limit: {})", afterId, limit);
+        String sql = "SELECT " + USER_COLUMNS + " FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        JdbcCursors.forEach(jdbcTemplate, sql, usersRowMapper, action, afterId, limit);
+    }
+
     /**
      * Inserta un nuevo usuario en la base de datos.
      *
      * @param user el objeto {@link Users} que contiene los datos del nuevo usuario
+     * @return {@link WriteOutcome#DUPLICATE} si el username ya existe
      */
     @Override
-    public void insertUser(Users user) {
-        logger.info("Insertando usuario: {}", user.getUsername());
+    public WriteOutcome insertUser(Users user) {
+        logger.debug("Insertando usuario: {}", user.getUsername());
         String sql = """
                 INSERT INTO users (username, passwordHash, active,
                 accountNonLocked, lastPasswordChange, passwordExpiresAt,
@@ -65,36 +214,47 @@ public class UsersDaoImple implements UsersDAO {
                 VALUES (?,?,?,?,?,?,?,?,?)
                 """;
 
-        int rowsAffected = jdbcTemplate.update(sql,
-                user.getUsername(),
-                user.getPasswordHash(),
-                user.isActive(),
-                user.isAccountNonLocked(),
-                user.getLastPasswordChange() != null ? Timestamp.valueOf(user.getLastPasswordChange()) : null,
-                user.getPasswordExpiresAt() != null ? Timestamp.valueOf(user.getPasswordExpiresAt()) : null,
-                user.getFailedLoginAttempts(),
-                user.isEmailVerified(),
-                user.isMustChangePassword());
+        int rowsAffected;
+        try {
+            rowsAffected = jdbcTemplate.update(sql,
+                    user.getUsername(),
+                    user.getPasswordHash(),
+                    user.isActive(),
+                    user.isAccountNonLocked(),
+                    user.getLastPasswordChange() != null ? Timestamp.valueOf(user.getLastPasswordChange()) : null,
+                    user.getPasswordExpiresAt() != null ? Timestamp.valueOf(user.getPasswordExpiresAt()) : null,
+                    user.getFailedLoginAttempts(),
+                    user.isEmailVerified(),
+                    user.isMustChangePassword());
+        } catch (DuplicateKeyException e) {
+            logger.debug("El username {} ya existe", user.getUsername());
+            return WriteOutcome.DUPLICATE;
+        }
+        version.increment();
 
-        logger.info("Inserted user. Rows affected: {}", rowsAffected);
+        logger.debug("Inserted user. Rows affected: {}", rowsAffected);
+        return WriteOutcome.WRITTEN;
     }
 
     /**
      * Verifica si existe un usuario con un nombre de usuario determinado.
      *
+     * Se busca por la columna generada {@code username_norm} (indexada), así que es una
+     * búsqueda en el índice y {@code EXISTS} se detiene en la primera coincidencia.
+     *
      * @param username el nombre de usuario a buscar (no sensible a mayúsculas)
      * @return {@code true} si el usuario existe, {@code false} en caso contrario
      */
     @Override
+    @ReadOnly
     public boolean existsUserByUsername(String username) {
-        logger.info("Entrando en el metodo existsUserByUsername para: {}", username);
-        String sql = "SELECT COUNT(*) FROM users WHERE UPPER(username) = ?";
+        logger.debug("Entrando en el metodo existsUserByUsername para: {}", username);
+        String sql = "SELECT EXISTS(SELECT 1 FROM users WHERE username_norm = ? LIMIT 1)";
 
-        // queryForObject(sql, requiredType, args) simplifica la cuenta
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, username.toUpperCase());
-        boolean exists = count != null && count > 0;
+        boolean exists = Boolean.TRUE.equals(
+                jdbcTemplate.queryForObject(sql, Boolean.class, normalize(username)));
 
-        logger.info("User con username: {} existe: {}", username, exists);
+        logger.debug("User con username: {} existe: {}", username, exists);
         return exists;
     }
 
@@ -105,17 +265,18 @@ public class UsersDaoImple implements UsersDAO {
      * @return el objeto {@link Users} correspondiente al ID, o {@code null} si no existe
      */
     @Override
+    @ReadOnly
     public Users getUsersById(long id) {
-        logger.info("Entrando en el metodo getUsersById para ID: {}", id);
-        String sql = "SELECT * FROM users WHERE id=?";
+        logger.debug("Entrando en el metodo getUsersById para ID: {}", id);
+        String sql = "SELECT " + USER_COLUMNS + " FROM users WHERE id=?";
 
         try {
             // queryForObject puede lanzar excepciones si no encuentra resultados
-            Users user = jdbcTemplate.queryForObject(sql, new BeanPropertyRowMapper<>(Users.class), id);
-            logger.info(" Usuario encontrado con ID: {}", id);
+            Users user = jdbcTemplate.queryForObject(sql, usersRowMapper, id);
+            logger.debug(" Usuario encontrado con ID: {}", id);
             return user;
         } catch (Exception e) {
-            logger.warn("Usuario no encontrado con el siguiente id: {}", id);
+            logger.debug("Usuario no encontrado con el siguiente id: {}", id);
             return null;
         }
     }
@@ -127,20 +288,23 @@ public class UsersDaoImple implements UsersDAO {
      */
     @Override
     public void deleteUsers(long id) {
-        logger.info("Entrando al metodo deleteUsers para ID: {}", id);
+        logger.debug("Entrando al metodo deleteUsers para ID: {}", id);
         String sql = "DELETE FROM users WHERE id = ?";
         int rowsAffected = jdbcTemplate.update(sql, id);
-        logger.info(" Deleted user with ID: {}. Rows affected: {}", id, rowsAffected);
+        version.increment();
+        logger.debug(" Deleted user with ID: {}. Rows affected: {}", id, rowsAffected);
     }
 
     /**
-     * Actualiza los datos de un usuario existente en la base de datos.
+     * Actualiza los datos de un usuario existente en la base de datos. No hay consulta previa:
+     * la unicidad del username la comprueba el propio {@code UPDATE}.
      *
      * @param user el objeto {@link Users} con los datos actualizados
+     * @return {@link WriteOutcome#DUPLICATE} si el nuevo username ya es de otro usuario
      */
     @Override
-    public void updateUsers(Users user) {
-        logger.info(" Updating user with id: {}", user.getId());
+    public WriteOutcome updateUsers(Users user) {
+        logger.debug(" Updating user with id: {}", user.getId());
         String sql = """
                 UPDATE users SET
                     username = ?,
@@ -155,19 +319,32 @@ public class UsersDaoImple implements UsersDAO {
                 WHERE id = ?
                 """;
 
-        int rowsAffected = jdbcTemplate.update(sql,
-                user.getUsername(),
-                user.getPasswordHash(),
-                user.isActive(),
-                user.isAccountNonLocked(),
-                user.getLastPasswordChange() != null ? Timestamp.valueOf(user.getLastPasswordChange()) : null,
-                user.getPasswordExpiresAt() != null ? Timestamp.valueOf(user.getPasswordExpiresAt()) : null,
-                user.getFailedLoginAttempts(),
-                user.isEmailVerified(),
-                user.isMustChangePassword(),
-                user.getId());
+        int rowsAffected;
+        try {
+            rowsAffected = jdbcTemplate.update(sql,
+                    user.getUsername(),
+                    user.getPasswordHash(),
+                    user.isActive(),
+                    user.isAccountNonLocked(),
+                    user.getLastPasswordChange() != null ? Timestamp.valueOf(user.getLastPasswordChange()) : null,
+                    user.getPasswordExpiresAt() != null ? Timestamp.valueOf(user.getPasswordExpiresAt()) : null,
+                    user.getFailedLoginAttempts(),
+                    user.isEmailVerified(),
+                    user.isMustChangePassword(),
+                    user.getId());
+        } catch (DuplicateKeyException e) {
+            logger.debug("El username {} ya existe en otro usuario", user.getUsername());
+            return WriteOutcome.DUPLICATE;
+        }
+        version.increment();
+
+        logger.debug(" Updated user. Rows affected: {}", rowsAffected);
+        return WriteOutcome.WRITTEN;
+    }
 
-        logger.info(" Updated user. Rows affected: {}", rowsAffected);
+    // El mismo valor que la columna generada username_norm (UPPER(username)), para buscar por su índice
+    private static String normalize(String username) {
+        return username.toUpperCase(Locale.ROOT);
     }
 
     /**
@@ -179,12 +356,94 @@ public class UsersDaoImple implements UsersDAO {
      * @return {@code true} si existe otro usuario con ese nombre, {@code false} en caso contrario
      */
     @Override
+    @ReadOnly
     public boolean existsUserByUsernameAndNotId(String username, long id) {
-        logger.info(" Entrando al metodo existsUserByUsernameAndNotId para username: {} excluyendo ID: {}", username, id);
-        String sql = "SELECT COUNT(*) FROM users WHERE UPPER(username) = ? AND id != ?";
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, username.toUpperCase(), id);
-        boolean exists = count != null && count > 0;
-        logger.info(" User with username: {} exists excluding id: {}: {}", username, id, exists);
+        logger.debug(" Entrando al metodo existsUserByUsernameAndNotId para username: {} excluyendo ID: {}", username, id);
+        String sql = "SELECT EXISTS(SELECT 1 FROM users WHERE username_norm = ? AND id != ? LIMIT 1)";
+        boolean exists = Boolean.TRUE.equals(
+                jdbcTemplate.queryForObject(sql, Boolean.class, normalize(username), id));
+        logger.debug(" User with username: {} exists excluding id: {}: {}", username, id, exists);
         return exists;
     }
+
+    /**
+     * Inserta varios usuarios con {@code batchUpdate}, en bloques de {@code app.jdbc.batch-size} filas.
+     * Cada bloque viaja en un único envío al servidor en lugar de una petición por fila.
+     *
+     * @param users la lista de usuarios a insertar
+     * @return un resultado por usuario, en el mismo orden que la lista
+     */
+    @Override
+    public int[] insertUsers(List<Users> users) {
+        logger.debug("Insertando {} usuarios en lotes de {}", users.size(), batchSize);
+        String sql = """
+                INSERT INTO users (username, passwordHash, active,
+                accountNonLocked, lastPasswordChange, passwordExpiresAt,
+                failedLoginAttempts, emailVerified, mustChangePassword)
+                VALUES (?,?,?,?,?,?,?,?,?)
+                """;
+        int[][] counts;
+        try {
+            counts = jdbcTemplate.batchUpdate(sql, users, batchSize, (ps, user) -> {
+                ps.setString(1, user.getUsername());
+                ps.setString(2, user.getPasswordHash());
+                ps.setBoolean(3, user.isActive());
+                ps.setBoolean(4, user.isAccountNonLocked());
+                ps.setTimestamp(5, user.getLastPasswordChange() != null ? Timestamp.valueOf(user.getLastPasswordChange()) : null);
+                ps.setTimestamp(6, user.getPasswordExpiresAt() != null ? Timestamp.valueOf(user.getPasswordExpiresAt()) : null);
+                ps.setInt(7, user.getFailedLoginAttempts());
+                ps.setBoolean(8, user.isEmailVerified());
+                ps.setBoolean(9, user.isMustChangePassword());
+            });
+        } finally {
+            version.increment();
+        }
+        int[] rowsAffected = BatchResults.flatten(counts);
+        logger.debug("Inserted {} users in {} batches", rowsAffected.length, counts.length);
+        return rowsAffected;
+    }
+
+    /**
+     * Actualiza varios usuarios con {@code batchUpdate}, en bloques de {@code app.jdbc.batch-size} filas.
+     *
+     * @param users la lista de usuarios con los datos actualizados
+     * @return un resultado por usuario, en el mismo orden que la lista
+     */
+    @Override
+    public int[] updateUsers(List<Users> users) {
+        logger.debug("Actualizando {} usuarios en lotes de {}", users.size(), batchSize);
+        String sql = """
+                UPDATE users SET
+                    username = ?,
+                    passwordHash = ?,
+                    active = ?,
+                    accountNonLocked = ?,
+                    lastPasswordChange = ?,
+                    passwordExpiresAt = ?,
+                    failedLoginAttempts = ?,
+                    emailVerified = ?,
+                    mustChangePassword = ?
+                WHERE id = ?
+                """;
+        int[][] counts;
+        try {
+            counts = jdbcTemplate.batchUpdate(sql, users, batchSize, (ps, user) -> {
+                ps.setString(1, user.getUsername());
+                ps.setString(2, user.getPasswordHash());
+                ps.setBoolean(3, user.isActive());
+                ps.setBoolean(4, user.isAccountNonLocked());
+                ps.setTimestamp(5, user.getLastPasswordChange() != null ? Timestamp.valueOf(user.getLastPasswordChange()) : null);
+                ps.setTimestamp(6, user.getPasswordExpiresAt() != null ? Timestamp.valueOf(user.getPasswordExpiresAt()) : null);
+                ps.setInt(7, user.getFailedLoginAttempts());
+                ps.setBoolean(8, user.isEmailVerified());
+                ps.setBoolean(9, user.isMustChangePassword());
+                ps.setLong(10, user.getId());
+            });
+        } finally {
+            version.increment();
+        }
+        int[] rowsAffected = BatchResults.flatten(counts);
+        logger.debug("Updated {} users in {} batches", rowsAffected.length, counts.length);
+        return rowsAffected;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
+
+/**
+ * Resultado de un alta o una modificación de una fila.
+ * <p>
+ * Los DAOs escriben directamente, sin consultar antes si el código o el username ya existe: es
+ * un solo viaje a la base de datos y la comprobación no puede quedar desfasada por otra
+ * escritura concurrente. Si el índice único rechaza la fila, la
+ * {@link org.springframework.dao.DuplicateKeyException} se traduce en {@link #DUPLICATE}; el
+ * resto de errores se siguen propagando como excepciones.
+ * </p>
+ */
+public enum WriteOutcome {
+
+    /** La escritura se ha hecho. */
+    WRITTEN,
+
+    /** No se ha escrito nada: el código o el username ya pertenece a otra fila. */
+    DUPLICATE
+}
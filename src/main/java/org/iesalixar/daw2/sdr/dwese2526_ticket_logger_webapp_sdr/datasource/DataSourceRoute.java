@@ -0,0 +1,74 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Base de datos a la que van las consultas del hilo actual: la réplica solo mientras se ejecuta un
+ * método {@link ReadOnly}; el primario en cualquier otro caso.
+ * <p>
+ * Además, una petición puede quedar fijada al primario ({@link #setPrimaryOnly(boolean)}), de forma
+ * que sus métodos {@link ReadOnly} tampoco usan la réplica; lo hace {@link PrimaryStickinessInterceptor}
+ * para que, tras un POST, el usuario vea sus propios cambios aunque la réplica vaya con retraso.
+ * </p>
+ */
+public final class DataSourceRoute {
+
+    public enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private static final ThreadLocal<Target> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = new ThreadLocal<>();
+
+    private DataSourceRoute() {
+    }
+
+    /**
+     * @return la base de datos para la siguiente conexión que se pida en este hilo
+     */
+    public static Target current() {
+        Target target = CURRENT.get();
+        return target != null ? target : Target.PRIMARY;
+    }
+
+    static void set(Target target) {
+        if (target == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(target);
+        }
+    }
+
+    public static boolean isPrimaryOnly() {
+        return Boolean.TRUE.equals(PRIMARY_ONLY.get());
+    }
+
+    /**
+     * Fija (o libera) la petición en curso al primario. Se debe liberar al terminar la petición.
+     */
+    public static void setPrimaryOnly(boolean primaryOnly) {
+        if (primaryOnly) {
+            PRIMARY_ONLY.set(Boolean.TRUE);
+        } else {
+            PRIMARY_ONLY.remove();
+        }
+    }
+
+    /**
+     * Ejecuta {@code query} fijada al primario y después deja la petición como estaba. Es para los
+     * datos que se guardan o se validan con la versión de una tabla ({@code getVersion()} de los
+     * DAOs, que cuenta las escrituras en el primario): leídos de una réplica con retraso quedarían
+     * asociados a una versión posterior a su contenido.
+     *
+     * @return el resultado de {@code query}
+     */
+    public static <T> T onPrimary(Supplier<T> query) {
+        boolean primaryOnly = isPrimaryOnly();
+        setPrimaryOnly(true);
+        try {
+            return query.get();
+        } finally {
+            setPrimaryOnly(primaryOnly);
+        }
+    }
+}
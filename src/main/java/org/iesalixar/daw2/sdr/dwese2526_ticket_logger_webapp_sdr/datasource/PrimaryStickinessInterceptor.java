@@ -0,0 +1,60 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.datasource;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * "Leer lo que uno mismo ha escrito" con réplica de lectura: las peticiones que pueden escribir
+ * (todo lo que no es GET, HEAD u OPTIONS) leen del primario y dejan una cookie que dura
+ * {@code app.datasource.read-your-writes-seconds}; mientras el navegador la envíe, sus peticiones
+ * también leen del primario. Así la redirección que sigue a un POST muestra el cambio aunque la
+ * réplica todavía no lo tenga.
+ * <p>
+ * La cookie solo decide a qué base de datos van las lecturas, así que no necesita firma: quien la
+ * manipule solo consigue leer del primario.
+ * </p>
+ */
+public class PrimaryStickinessInterceptor implements AsyncHandlerInterceptor {
+
+    static final String COOKIE_NAME = "db-primary";
+
+    private final int stickySeconds;
+
+    public PrimaryStickinessInterceptor(int stickySeconds) {
+        this.stickySeconds = stickySeconds;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!isSafe(request.getMethod())) {
+            Cookie cookie = new Cookie(COOKIE_NAME, "1");
+            cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+            cookie.setMaxAge(stickySeconds);
+            cookie.setHttpOnly(true);
+            cookie.setAttribute("SameSite", "Lax");
+            response.addCookie(cookie);
+            DataSourceRoute.setPrimaryOnly(true);
+        } else if (WebUtils.getCookie(request, COOKIE_NAME) != null) {
+            DataSourceRoute.setPrimaryOnly(true);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        DataSourceRoute.setPrimaryOnly(false);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        DataSourceRoute.setPrimaryOnly(false);
+    }
+
+    private static boolean isSafe(String method) {
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method);
+    }
+}
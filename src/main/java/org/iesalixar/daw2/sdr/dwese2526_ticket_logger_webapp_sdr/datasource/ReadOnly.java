@@ -0,0 +1,22 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca un método de un DAO que solo lee. Si hay réplica de lectura configurada
+ * ({@code app.datasource.replica.jdbc-url}) se ejecuta contra la réplica, salvo dentro de una
+ * transacción o cuando la petición debe leer del primario ({@link DataSourceRoute#isPrimaryOnly()}).
+ * Sin réplica no tiene ningún efecto.
+ * <p>
+ * Se pone en la clase que implementa el DAO, no en la interfaz.
+ * </p>
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReadOnly {
+}
@@ -0,0 +1,38 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.config.DaoAspectOrder;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Envía a la réplica las consultas de los métodos {@link ReadOnly}, salvo que:
+ * <ul>
+ *     <li>haya una transacción en curso: su conexión ya es del primario y debe ver sus propias
+ *     escrituras;</li>
+ *     <li>la petición esté fijada al primario ({@link DataSourceRoute#isPrimaryOnly()});</li>
+ *     <li>ya se esté dentro de otro método {@link ReadOnly}.</li>
+ * </ul>
+ * Solo se registra si hay réplica configurada ({@code ReadReplicaConfig}).
+ */
+@Aspect
+@Order(DaoAspectOrder.READ_ONLY_ROUTING)
+public class ReadOnlyRoutingAspect {
+
+    @Around("@annotation(org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.datasource.ReadOnly)")
+    public Object routeToReplica(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (DataSourceRoute.current() == DataSourceRoute.Target.REPLICA
+                || DataSourceRoute.isPrimaryOnly()
+                || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        DataSourceRoute.set(DataSourceRoute.Target.REPLICA);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            DataSourceRoute.set(null);
+        }
+    }
+}
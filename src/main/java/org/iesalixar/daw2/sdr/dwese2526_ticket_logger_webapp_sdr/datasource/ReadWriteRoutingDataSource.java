@@ -0,0 +1,29 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * {@code DataSource} que entrega conexiones del primario o de la réplica según
+ * {@link DataSourceRoute#current()}. La elección se hace al pedir la conexión: dentro de una
+ * transacción la conexión se obtiene al empezarla, fuera de cualquier {@link ReadOnly}, así que
+ * toda la transacción va al primario.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(
+                DataSourceRoute.Target.PRIMARY, primary,
+                DataSourceRoute.Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return DataSourceRoute.current();
+    }
+}
@@ -56,4 +56,12 @@ public class Province {
         this.name = name;
         this.region = region;
     }
+
+    /**
+     * @return una copia independiente (también de la región), para no compartir la misma
+     *         instancia entre peticiones
+     */
+    public Province copy() {
+        return new Province(id, code, name, region != null ? region.copy() : null);
+    }
 }
\ No newline at end of file
@@ -29,4 +29,11 @@ public class Region {
         this.code=code;
         this.name=name;
     }
+
+    /**
+     * @return una copia independiente, para no compartir la misma instancia entre peticiones
+     */
+    public Region copy() {
+        return new Region(id, code, name);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fila del listado de usuarios: solo las columnas que muestra <code>user-list.html</code>.
+ * <p>
+ * No incluye {@code passwordHash} (hasta 500 caracteres por fila que el listado nunca pinta) y
+ * guarda los cuatro indicadores booleanos en un único {@code byte}. Los {@code isX()} tienen los
+ * mismos nombres que en {@link Users}, así que la plantilla sigue usando {@code ${user.active}}.
+ * El formulario de edición carga el {@link Users} completo.
+ * </p>
+ *
+ * @param id identificador del usuario.
+ * @param username nombre de usuario.
+ * @param lastPasswordChange fecha del último cambio de contraseña.
+ * @param passwordExpiresAt fecha de caducidad de la contraseña.
+ * @param failedLoginAttempts número de logins fallidos.
+ * @param flags indicadores booleanos ({@link #ACTIVE}, {@link #ACCOUNT_NON_LOCKED},
+ *              {@link #EMAIL_VERIFIED} y {@link #MUST_CHANGE_PASSWORD}).
+ */
+public record UserListItem(long id,
+                           String username,
+                           LocalDateTime lastPasswordChange,
+                           LocalDateTime passwordExpiresAt,
+                           int failedLoginAttempts,
+                           byte flags) {
+
+    public static final byte ACTIVE = 1;
+    public static final byte ACCOUNT_NON_LOCKED = 1 << 1;
+    public static final byte EMAIL_VERIFIED = 1 << 2;
+    public static final byte MUST_CHANGE_PASSWORD = 1 << 3;
+
+    /**
+     * Empaqueta los indicadores booleanos de un usuario en el {@code byte} de {@link #flags()}.
+     */
+    public static byte flags(boolean active, boolean accountNonLocked, boolean emailVerified, boolean mustChangePassword) {
+        return (byte) ((active ? ACTIVE : 0)
+                | (accountNonLocked ? ACCOUNT_NON_LOCKED : 0)
+                | (emailVerified ? EMAIL_VERIFIED : 0)
+                | (mustChangePassword ? MUST_CHANGE_PASSWORD : 0));
+    }
+
+    public boolean isActive() {
+        return (flags & ACTIVE) != 0;
+    }
+
+    public boolean isAccountNonLocked() {
+        return (flags & ACCOUNT_NON_LOCKED) != 0;
+    }
+
+    public boolean isEmailVerified() {
+        return (flags & EMAIL_VERIFIED) != 0;
+    }
+
+    public boolean isMustChangePassword() {
+        return (flags & MUST_CHANGE_PASSWORD) != 0;
+    }
+}
@@ -57,4 +57,12 @@ public class Users {
         this.emailVerified = emailVerified;
         this.mustChangePassword = mustChangePassword;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return una copia independiente, para no compartir la misma instancia entre peticiones
+     */
+    public Users copy() {
+        return new Users(id, username, passwordHash, active, accountNonLocked, lastPasswordChange,
+                passwordExpiresAt, failedLoginAttempts, emailVerified, mustChangePassword);
+    }
+}
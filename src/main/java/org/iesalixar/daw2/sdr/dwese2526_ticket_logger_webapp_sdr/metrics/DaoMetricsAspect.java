@@ -0,0 +1,164 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.config.DaoAspectOrder;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.WriteOutcome;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Métricas de todos los métodos de {@code RegionDAO}, {@code ProvinceDAO} y {@code UsersDAO},
+ * sin tocar los DAOs.
+ * <ul>
+ *     <li>{@code dao.calls}: timer con p50, p99, máximo e histograma (para Prometheus).</li>
+ *     <li>{@code dao.rows}: filas devueltas o escritas por llamada (0 si la escritura devuelve
+ *     {@code WriteOutcome.DUPLICATE}).</li>
+ *     <li>{@code dao.errors}: excepciones, etiquetadas con su clase.</li>
+ * </ul>
+ * Todas llevan las etiquetas {@code dao} (interfaz), {@code method} y {@code sql} (tipo de
+ * sentencia: select, insert, update o delete, deducido del nombre del método).
+ * <p>
+ * Los medidores de cada método se crean la primera vez y se reutilizan, así que el coste por
+ * llamada es el de registrar la duración y el tamaño del resultado.
+ * </p>
+ */
+@Aspect
+@Component
+@Order(DaoAspectOrder.DAO_METRICS)
+public class DaoMetricsAspect {
+
+    private final MeterRegistry registry;
+    private final Map<Method, DaoMeters> meters = new ConcurrentHashMap<>();
+
+    public DaoMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    // getVersion no accede a la base de datos: se excluye para no llenar dao.calls de lecturas de un contador
+    @Around("execution(* org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.*DAO.*(..))"
+            + " && !execution(long org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.*DAO.getVersion())")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        DaoMeters daoMeters = meters.computeIfAbsent(method, this::createMeters);
+
+        // Los recorridos forEach* no devuelven nada: se cuentan las filas que pasan por el consumidor
+        Object[] args = joinPoint.getArgs();
+        LongAdder streamedRows = null;
+        int last = args.length - 1;
+        if (last >= 0 && args[last] instanceof Consumer<?> consumer) {
+            streamedRows = new LongAdder();
+            args = args.clone();
+            args[last] = countingConsumer(consumer, streamedRows);
+        }
+
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed(args);
+            daoMeters.timer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            long rows = streamedRows != null ? streamedRows.sum() : rowCount(result);
+            if (rows >= 0) {
+                daoMeters.rows().record(rows);
+            }
+            return result;
+        } catch (Throwable e) {
+            daoMeters.errorTimer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            errorCounter(daoMeters, e).increment();
+            throw e;
+        }
+    }
+
+    private static <T> Consumer<T> countingConsumer(Consumer<T> consumer, LongAdder rows) {
+        return item -> {
+            rows.increment();
+            consumer.accept(item);
+        };
+    }
+
+    /**
+     * @return filas del resultado, o -1 si el método no devuelve filas (p. ej. {@code exists*})
+     */
+    private static long rowCount(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof int[] batchCounts) {
+            return batchCounts.length;
+        }
+        if (result instanceof Boolean) {
+            return -1;
+        }
+        // Un DUPLICATE no ha escrito nada
+        if (result instanceof WriteOutcome outcome) {
+            return outcome == WriteOutcome.DUPLICATE ? 0 : 1;
+        }
+        return result != null ? 1 : 0;
+    }
+
+    private DaoMeters createMeters(Method method) {
+        String dao = method.getDeclaringClass().getSimpleName();
+        String name = method.getName();
+        String sql = sqlKind(name);
+        Timer timer = Timer.builder("dao.calls")
+                .description("Duración de las llamadas a los DAOs")
+                .tags("dao", dao, "method", name, "sql", sql, "outcome", "success")
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(registry);
+        Timer errorTimer = Timer.builder("dao.calls")
+                .description("Duración de las llamadas a los DAOs")
+                .tags("dao", dao, "method", name, "sql", sql, "outcome", "error")
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(registry);
+        DistributionSummary rows = DistributionSummary.builder("dao.rows")
+                .description("Filas leídas o escritas por llamada")
+                .tags("dao", dao, "method", name, "sql", sql)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        return new DaoMeters(dao, name, sql, timer, errorTimer, rows);
+    }
+
+    private Counter errorCounter(DaoMeters daoMeters, Throwable error) {
+        return Counter.builder("dao.errors")
+                .description("Excepciones lanzadas por los DAOs")
+                .tags("dao", daoMeters.dao(), "method", daoMeters.method(), "sql", daoMeters.sql(),
+                        "exception", error.getClass().getSimpleName())
+                .register(registry);
+    }
+
+    /**
+     * Tipo de sentencia a partir del nombre del método del DAO (listAll*, get*, exists*,
+     * forEach* → select; insert*, update*, delete* → su sentencia).
+     */
+    static String sqlKind(String methodName) {
+        if (methodName.startsWith("insert")) {
+            return "insert";
+        }
+        if (methodName.startsWith("update")) {
+            return "update";
+        }
+        if (methodName.startsWith("delete")) {
+            return "delete";
+        }
+        return "select";
+    }
+
+    private record DaoMeters(String dao, String method, String sql,
+                             Timer timer, Timer errorTimer, DistributionSummary rows) {
+    }
+}
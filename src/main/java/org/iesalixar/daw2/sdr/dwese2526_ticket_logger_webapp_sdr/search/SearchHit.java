@@ -0,0 +1,17 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.search;
+
+/**
+ * Resultado de {@link SearchIndex#search}.
+ *
+ * @param type   tabla del resultado
+ * @param id     id de la fila
+ * @param title  texto principal (nombre de la región o provincia, username)
+ * @param detail texto secundario (código, región de la provincia); puede ser {@code null}
+ * @param score  relevancia según Lucene; solo sirve para ordenar
+ */
+public record SearchHit(Type type, long id, String title, String detail, float score) {
+
+    public enum Type {
+        REGION, PROVINCE, USER
+    }
+}
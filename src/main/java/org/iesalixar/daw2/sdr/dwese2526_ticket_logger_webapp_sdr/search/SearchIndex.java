@@ -0,0 +1,711 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.LockObtainFailedException;
+import org.apache.lucene.store.MMapDirectory;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.ProvinceDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.RegionDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.UsersDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Province;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Region;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Users;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.search.SearchHit.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Índice Lucene de regiones, provincias y usuarios para la búsqueda de texto de {@code /search}:
+ * sin distinguir mayúsculas ni tildes ({@link SearchAnalyzer}), por prefijo y con tolerancia a
+ * erratas (búsqueda difusa).
+ * <p>
+ * El índice se guarda en disco ({@code app.search.index-dir}, con {@link MMapDirectory}) y se
+ * confirma cada {@code app.search.commit-interval} si ha cambiado. Al arrancar se abre el que haya
+ * y se puede buscar en él enseguida. Si se cerró bien la última vez, solo se le añaden en segundo
+ * plano las filas dadas de alta desde entonces; si no (primer arranque, caída del proceso o alguna
+ * actualización fallida) o con {@code app.search.rebuild-on-startup}, se reconstruye desde los DAOs
+ * ({@link #rebuild()}). Después, {@link SearchIndexUpdater} lo mantiene al día con cada escritura
+ * de los DAOs, en un hilo propio ({@link #enqueue(String, Runnable)}).
+ * </p>
+ * <p>
+ * La reconstrucción no vacía el índice: reescribe cada fila con una generación nueva y al final
+ * borra los documentos de generaciones anteriores (filas que ya no existen). Las filas que se
+ * modifican o borran mientras tanto se anotan y se vuelven a leer al terminar, porque el
+ * recorrido puede haber escrito una versión anterior después del cambio.
+ * </p>
+ * <p>
+ * Las altas no traen el id generado, así que se indexan las filas con id mayor que el último
+ * indexado de cada tabla ({@link #catchUp(Type)}).
+ * </p>
+ */
+@Component
+public class SearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndex.class);
+
+    // Filas por consulta al indexar las altas
+    private static final int CATCH_UP_BATCH = 1000;
+    // Palabras de la búsqueda que se tienen en cuenta
+    private static final int MAX_QUERY_TERMS = 8;
+
+    private static final String KEY = "key";
+    private static final String TYPE = "type";
+    private static final String ID = "id";
+    private static final String TITLE = "title";
+    private static final String DETAIL = "detail";
+    private static final String TEXT = "text";
+    private static final String GENERATION = "generation";
+
+    // Datos guardados con cada commit: si el índice se cerró al día y el último id indexado de cada tabla
+    private static final String CLEAN = "clean";
+    private static final String LAST_ID = "last-id.";
+    // Espera máxima al cerrar a que se apliquen las actualizaciones pendientes
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private final RegionDAO regionDAO;
+    private final ProvinceDAO provinceDAO;
+    private final UsersDAO usersDAO;
+    private final Path indexDir;
+    private final boolean rebuildOnStartup;
+    private final Duration commitInterval;
+    private final Analyzer analyzer = new SearchAnalyzer();
+    // Un solo hilo para las actualizaciones y los commits periódicos: se aplican en el orden en que llegan
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("search-index").daemon().factory());
+
+    private final Timer rebuildTimer;
+    private final Timer queryTimer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Filas modificadas o borradas durante una reconstrucción (protegido por lock); null fuera de ellas
+    private Set<Key> touchedDuringRebuild;
+
+    private final Map<Type, AtomicLong> lastIndexedIds = new EnumMap<>(Type.class);
+
+    private volatile IndexWriter writer;
+    private volatile SearcherManager searcherManager;
+    private volatile long generation;
+    // El índice refleja todas las filas salvo las actualizaciones pendientes: true tras reconstruirlo
+    // (o ponerlo al día al reutilizarlo) y hasta que falle alguna actualización
+    private volatile boolean consistent;
+
+    public SearchIndex(RegionDAO regionDAO, ProvinceDAO provinceDAO, UsersDAO usersDAO, MeterRegistry registry,
+                       @Value("${app.search.index-dir:search-index}") String indexDir,
+                       @Value("${app.search.rebuild-on-startup:false}") boolean rebuildOnStartup,
+                       @Value("${app.search.commit-interval:30s}") Duration commitInterval) {
+        this.regionDAO = regionDAO;
+        this.provinceDAO = provinceDAO;
+        this.usersDAO = usersDAO;
+        this.indexDir = Path.of(indexDir);
+        this.rebuildOnStartup = rebuildOnStartup;
+        this.commitInterval = commitInterval;
+        for (Type type : Type.values()) {
+            lastIndexedIds.put(type, new AtomicLong());
+        }
+        this.rebuildTimer = Timer.builder("search.index.rebuild")
+                .description("Duración de las reconstrucciones del índice de búsqueda")
+                .register(registry);
+        this.queryTimer = Timer.builder("search.queries")
+                .description("Duración de las búsquedas en el índice")
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(registry);
+        Gauge.builder("search.index.documents", this, SearchIndex::documentCount)
+                .description("Documentos en el índice de búsqueda")
+                .register(registry);
+    }
+
+    private record Key(Type type, long id) {
+    }
+
+    /**
+     * Abre el índice guardado, programa los commits periódicos y lanza en un hilo aparte, para no
+     * retrasar el arranque, su puesta al día o su reconstrucción. Si el índice no se puede abrir,
+     * {@code /search} no devuelve resultados.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        boolean reuse;
+        try {
+            open();
+            reuse = !rebuildOnStartup && resume();
+        } catch (IOException e) {
+            logger.warn("No se ha podido abrir el índice de búsqueda en {}: {}", indexDir.toAbsolutePath(), e.getMessage());
+            return;
+        }
+        long interval = commitInterval.toMillis();
+        executor.scheduleWithFixedDelay(this::commitChanges, interval, interval, TimeUnit.MILLISECONDS);
+        Thread.ofPlatform().name("search-index-rebuild").daemon().start(() -> {
+            try {
+                if (reuse) {
+                    catchUpAll();
+                } else {
+                    rebuild();
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("No se ha podido {} el índice de búsqueda: {}", reuse ? "poner al día" : "reconstruir",
+                        e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Abre (o crea) el índice en {@code app.search.index-dir}. Un índice ilegible, por ejemplo de
+     * otra versión de Lucene, se descarta y se crea vacío.
+     */
+    public void open() throws IOException {
+        Directory directory = new MMapDirectory(indexDir);
+        IndexWriter opened;
+        try {
+            opened = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                    .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        } catch (LockObtainFailedException e) {
+            directory.close();
+            throw e;
+        } catch (IOException e) {
+            logger.warn("Índice de búsqueda ilegible en {} ({}); se crea de nuevo", indexDir.toAbsolutePath(), e.getMessage());
+            opened = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                    .setOpenMode(IndexWriterConfig.OpenMode.CREATE));
+        }
+        writer = opened;
+        searcherManager = new SearcherManager(opened, null);
+        logger.info("Índice de búsqueda abierto en {}: {} documentos", indexDir.toAbsolutePath(), documentCount());
+    }
+
+    /**
+     * Vuelve a indexar todas las regiones, provincias y usuarios y borra los documentos de filas
+     * que ya no existen.
+     */
+    public void rebuild() throws IOException {
+        IndexWriter current = requireOpen();
+        long start = System.nanoTime();
+        long rebuildGeneration;
+        lock.lock();
+        try {
+            rebuildGeneration = Math.max(generation + 1, System.currentTimeMillis());
+            generation = rebuildGeneration;
+            touchedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.unlock();
+        }
+
+        Set<Key> touched;
+        try {
+            regionDAO.forEachRegion(this::indexRegion);
+            provinceDAO.forEachProvince(this::indexProvince);
+            usersDAO.forEachUser(this::indexUser);
+            current.deleteDocuments(LongPoint.newRangeQuery(GENERATION, Long.MIN_VALUE, rebuildGeneration - 1));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            lock.lock();
+            try {
+                touched = touchedDuringRebuild;
+                touchedDuringRebuild = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        for (Key key : touched) {
+            reload(key);
+        }
+        for (Type type : Type.values()) {
+            catchUp(type);
+        }
+        consistent = true;
+        commit(current, false);
+        searcherManager.maybeRefresh();
+
+        long elapsed = System.nanoTime() - start;
+        rebuildTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        logger.info("Índice de búsqueda reconstruido: {} documentos en {} ms ({} filas releídas por cambios durante la carga)",
+                documentCount(), elapsed / 1_000_000, touched.size());
+    }
+
+    /**
+     * Busca en las tres tablas (o solo en {@code type}). Cada palabra debe aparecer entera o como
+     * prefijo; si así no hay ningún resultado, se repite la búsqueda tolerando erratas (1 o 2
+     * letras según la longitud de la palabra). La búsqueda difusa es la parte cara, así que solo
+     * se hace cuando hace falta. Los resultados van por relevancia.
+     *
+     * @param text  texto buscado
+     * @param type  tabla en la que buscar, o {@code null} para todas
+     * @param limit número máximo de resultados
+     * @return los resultados; vacío si el texto no tiene palabras o el índice no está abierto
+     */
+    public List<SearchHit> search(String text, Type type, int limit) {
+        SearcherManager manager = searcherManager;
+        List<String> terms = text != null ? analyze(text) : List.of();
+        if (manager == null || terms.isEmpty()) {
+            return List.of();
+        }
+        long start = System.nanoTime();
+        try {
+            IndexSearcher searcher = manager.acquire();
+            try {
+                List<SearchHit> hits = search(searcher, buildQuery(terms, type, false), limit);
+                if (hits.isEmpty()) {
+                    hits = search(searcher, buildQuery(terms, type, true), limit);
+                }
+                return hits;
+            } finally {
+                manager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            queryTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Indexa las filas de {@code type} dadas de alta desde la última vez (id mayor que el último
+     * indexado). Durante una reconstrucción no hace nada: la propia reconstrucción lo hace al final.
+     */
+    public void catchUp(Type type) {
+        if (writer == null || isRebuilding()) {
+            return;
+        }
+        AtomicLong lastIndexedId = lastIndexedIds.get(type);
+        AtomicInteger read = new AtomicInteger();
+        do {
+            read.set(0);
+            long after = lastIndexedId.get();
+            switch (type) {
+                case REGION -> regionDAO.forEachRegion(after, CATCH_UP_BATCH, region -> {
+                    read.incrementAndGet();
+                    indexRegion(region);
+                });
+                case PROVINCE -> provinceDAO.forEachProvince(after, CATCH_UP_BATCH, province -> {
+                    read.incrementAndGet();
+                    indexProvince(province);
+                });
+                case USER -> usersDAO.forEachUser(after, CATCH_UP_BATCH, user -> {
+                    read.incrementAndGet();
+                    indexUser(user);
+                });
+            }
+        } while (read.get() == CATCH_UP_BATCH);
+        refresh();
+    }
+
+    /**
+     * Vuelve a indexar filas modificadas de {@code type}. Si cambia una región se reindexan también
+     * sus provincias, que llevan el nombre de la región.
+     *
+     * @param rows entidades ({@link Region}, {@link Province} o {@link Users}) ya escritas
+     */
+    public void update(Type type, Collection<?> rows) {
+        if (writer == null) {
+            return;
+        }
+        Set<Long> regionIds = new HashSet<>();
+        for (Object row : rows) {
+            switch (row) {
+                case Region region -> {
+                    touch(new Key(Type.REGION, region.getId()));
+                    indexRegion(region);
+                    regionIds.add(region.getId());
+                }
+                case Province province -> {
+                    touch(new Key(Type.PROVINCE, province.getId()));
+                    // El formulario solo envía el id de la región: sin su nombre se relee la provincia
+                    if (province.getRegion() != null && province.getRegion().getName() != null) {
+                        indexProvince(province);
+                    } else {
+                        reload(new Key(Type.PROVINCE, province.getId()));
+                    }
+                }
+                case Users user -> {
+                    touch(new Key(Type.USER, user.getId()));
+                    indexUser(user);
+                }
+                default -> throw new IllegalArgumentException("Fila de tipo no indexable: " + row.getClass().getName());
+            }
+        }
+        for (Long regionId : regionIds) {
+            provinceDAO.forEachProvinceOfRegion(regionId, province -> {
+                touch(new Key(Type.PROVINCE, province.getId()));
+                indexProvince(province);
+            });
+        }
+        refresh();
+    }
+
+    /**
+     * Vuelve a leer de la base de datos filas de {@code type}, quitando del índice las que ya no
+     * existen, por ejemplo tras una escritura por lotes que ha fallado a medias. Con las regiones se
+     * reindexan también sus provincias.
+     */
+    public void reload(Type type, Collection<Long> ids) {
+        if (writer == null) {
+            return;
+        }
+        for (Long id : ids) {
+            if (id == null) {
+                continue;
+            }
+            Key key = new Key(type, id);
+            touch(key);
+            reload(key);
+            if (type == Type.REGION) {
+                provinceDAO.forEachProvinceOfRegion(id, province -> {
+                    touch(new Key(Type.PROVINCE, province.getId()));
+                    indexProvince(province);
+                });
+            }
+        }
+        refresh();
+    }
+
+    /**
+     * Aplica una actualización del índice en su hilo, detrás de las anteriores, para no hacer
+     * esperar a la petición que ha escrito. Si falla solo se registra, y el índice se reconstruye en
+     * el próximo arranque.
+     *
+     * @param description qué escritura la origina, para el registro
+     */
+    public void enqueue(String description, Runnable update) {
+        try {
+            executor.execute(() -> {
+                try {
+                    update.run();
+                } catch (RuntimeException e) {
+                    consistent = false;
+                    logger.warn("No se ha podido actualizar el índice de búsqueda tras {}: {}", description, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            consistent = false;
+            logger.warn("Índice de búsqueda cerrado: no se aplica la actualización tras {}", description);
+        }
+    }
+
+    /**
+     * Quita del índice una fila borrada.
+     */
+    public void delete(Type type, long id) {
+        IndexWriter current = writer;
+        if (current == null) {
+            return;
+        }
+        Key key = new Key(type, id);
+        touch(key);
+        try {
+            current.deleteDocuments(new Term(KEY, key(key)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        refresh();
+    }
+
+    /**
+     * Aplica las actualizaciones pendientes y cierra el índice. Se marca como al día, y por tanto se
+     * reutiliza en el próximo arranque, si no queda ninguna pendiente ni una reconstrucción a medias.
+     */
+    @PreDestroy
+    public void close() {
+        executor.shutdown();
+        boolean drained;
+        try {
+            drained = executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            drained = false;
+        }
+        IndexWriter current = writer;
+        if (current == null) {
+            return;
+        }
+        writer = null;
+        try {
+            searcherManager.close();
+            commit(current, drained && consistent && !isRebuilding());
+            current.close();
+            current.getDirectory().close();
+        } catch (IOException e) {
+            logger.warn("Error al cerrar el índice de búsqueda: {}", e.getMessage());
+        }
+    }
+
+    long documentCount() {
+        IndexWriter current = writer;
+        return current != null ? current.getDocStats().numDocs : 0;
+    }
+
+    /**
+     * Prepara la reutilización del índice abierto si se cerró al día: recupera el último id
+     * indexado de cada tabla y lo marca como no cerrado, para reconstruirlo si el proceso cae.
+     *
+     * @return {@code false} si hay que reconstruirlo
+     */
+    private boolean resume() throws IOException {
+        IndexWriter current = requireOpen();
+        Map<String, String> committed = new HashMap<>();
+        Iterable<Map.Entry<String, String>> data = current.getLiveCommitData();
+        if (data != null) {
+            data.forEach(entry -> committed.put(entry.getKey(), entry.getValue()));
+        }
+        if (!Boolean.parseBoolean(committed.get(CLEAN))) {
+            return false;
+        }
+        for (Type type : Type.values()) {
+            lastIndexedIds.get(type).set(Long.parseLong(committed.getOrDefault(LAST_ID + type.name(), "0")));
+        }
+        commit(current, false);
+        return true;
+    }
+
+    private void catchUpAll() {
+        long before = documentCount();
+        for (Type type : Type.values()) {
+            catchUp(type);
+        }
+        consistent = true;
+        logger.info("Índice de búsqueda reutilizado: {} documentos ({} nuevos desde el último cierre)",
+                documentCount(), documentCount() - before);
+    }
+
+    // Commit periódico, en el hilo del índice
+    private void commitChanges() {
+        IndexWriter current = writer;
+        try {
+            if (current != null && current.hasUncommittedChanges()) {
+                commit(current, false);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("No se ha podido guardar el índice de búsqueda: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Confirma los cambios con los últimos ids indexados. Los ids se leen antes del commit y cada
+     * uno se anota después de escribir su documento, así que ninguno apunta a un documento sin
+     * guardar.
+     */
+    private void commit(IndexWriter current, boolean clean) throws IOException {
+        Map<String, String> data = new HashMap<>();
+        data.put(CLEAN, Boolean.toString(clean));
+        lastIndexedIds.forEach((type, id) -> data.put(LAST_ID + type.name(), Long.toString(id.get())));
+        current.setLiveCommitData(data.entrySet());
+        current.commit();
+    }
+
+    private IndexWriter requireOpen() {
+        IndexWriter current = writer;
+        if (current == null) {
+            throw new IllegalStateException("El índice de búsqueda no está abierto");
+        }
+        return current;
+    }
+
+    private boolean isRebuilding() {
+        lock.lock();
+        try {
+            return touchedDuringRebuild != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void touch(Key key) {
+        lock.lock();
+        try {
+            if (touchedDuringRebuild != null) {
+                touchedDuringRebuild.add(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void reload(Key key) {
+        switch (key.type()) {
+            case REGION -> {
+                Region region = regionDAO.getRegionById(key.id());
+                if (region != null) {
+                    indexRegion(region);
+                    return;
+                }
+            }
+            case PROVINCE -> {
+                Province province = provinceDAO.getProvinceById(key.id());
+                if (province != null) {
+                    indexProvince(province);
+                    return;
+                }
+            }
+            case USER -> {
+                Users user = usersDAO.getUsersById(key.id());
+                if (user != null) {
+                    indexUser(user);
+                    return;
+                }
+            }
+        }
+        try {
+            requireOpen().deleteDocuments(new Term(KEY, key(key)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void indexRegion(Region region) {
+        index(Type.REGION, region.getId(), region.getName(), region.getCode(),
+                region.getCode() + " " + region.getName());
+    }
+
+    private void indexProvince(Province province) {
+        Region region = province.getRegion();
+        String regionName = region != null && region.getName() != null ? region.getName() : "";
+        index(Type.PROVINCE, province.getId(), province.getName(),
+                regionName.isEmpty() ? province.getCode() : province.getCode() + " · " + regionName,
+                province.getCode() + " " + province.getName() + " " + regionName);
+    }
+
+    private void indexUser(Users user) {
+        index(Type.USER, user.getId(), user.getUsername(), null, user.getUsername());
+    }
+
+    private void index(Type type, long id, String title, String detail, String text) {
+        String key = key(new Key(type, id));
+        Document document = new Document();
+        document.add(new StringField(KEY, key, Field.Store.NO));
+        document.add(new StringField(TYPE, type.name(), Field.Store.YES));
+        document.add(new StoredField(ID, id));
+        document.add(new StoredField(TITLE, title));
+        if (detail != null) {
+            document.add(new StoredField(DETAIL, detail));
+        }
+        document.add(new TextField(TEXT, text, Field.Store.NO));
+        document.add(new LongPoint(GENERATION, generation));
+        try {
+            requireOpen().updateDocument(new Term(KEY, key), document);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        lastIndexedIds.get(type).accumulateAndGet(id, Math::max);
+    }
+
+    private void refresh() {
+        try {
+            SearcherManager manager = searcherManager;
+            if (manager != null) {
+                manager.maybeRefresh();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String key(Key key) {
+        return key.type().name() + ":" + key.id();
+    }
+
+    private static List<SearchHit> search(IndexSearcher searcher, Query query, int limit) throws IOException {
+        TopDocs top = searcher.search(query, limit);
+        StoredFields storedFields = searcher.storedFields();
+        List<SearchHit> hits = new ArrayList<>(top.scoreDocs.length);
+        for (ScoreDoc scoreDoc : top.scoreDocs) {
+            Document document = storedFields.document(scoreDoc.doc);
+            hits.add(new SearchHit(Type.valueOf(document.get(TYPE)),
+                    document.getField(ID).numericValue().longValue(),
+                    document.get(TITLE), document.get(DETAIL), scoreDoc.score));
+        }
+        return hits;
+    }
+
+    /**
+     * @return las palabras del texto ya normalizadas como en el índice, como mucho {@link #MAX_QUERY_TERMS}
+     */
+    private List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream(TEXT, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken() && terms.size() < MAX_QUERY_TERMS) {
+                terms.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terms;
+    }
+
+    /**
+     * Una cláusula obligatoria por palabra, que se cumple si la palabra aparece entera (más
+     * relevancia) o como prefijo y, con {@code fuzzy}, si tiene 3 letras o más, con 1 o 2
+     * erratas según su longitud.
+     */
+    private static Query buildQuery(List<String> terms, Type type, boolean fuzzy) {
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (String term : terms) {
+            Term indexTerm = new Term(TEXT, term);
+            BooleanQuery.Builder word = new BooleanQuery.Builder()
+                    .add(new BoostQuery(new TermQuery(indexTerm), 4f), BooleanClause.Occur.SHOULD)
+                    .add(new BoostQuery(new PrefixQuery(indexTerm), 2f), BooleanClause.Occur.SHOULD);
+            int maxEdits = term.length() <= 2 ? 0 : term.length() <= 5 ? 1 : 2;
+            if (fuzzy && maxEdits > 0) {
+                word.add(new FuzzyQuery(indexTerm, maxEdits, 1), BooleanClause.Occur.SHOULD);
+            }
+            query.add(word.build(), BooleanClause.Occur.MUST);
+        }
+        if (type != null) {
+            query.add(new TermQuery(new Term(TYPE, type.name())), BooleanClause.Occur.FILTER);
+        }
+        return query.build();
+    }
+}
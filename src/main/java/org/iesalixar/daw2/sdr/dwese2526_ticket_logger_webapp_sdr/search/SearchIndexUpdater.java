@@ -0,0 +1,150 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.search;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.AfterThrowing;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.config.DaoAspectOrder;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.ProvinceDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.RegionDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.WriteOutcome;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Province;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Region;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Users;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.search.SearchHit.Type;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * Mantiene al día el {@link SearchIndex} con las escrituras de {@code RegionDAO},
+ * {@code ProvinceDAO} y {@code UsersDAO}, sin tocar los DAOs: altas ({@code insert*}),
+ * modificaciones ({@code update*}) y bajas ({@code delete*}), de una fila o por lotes.
+ * <p>
+ * Las actualizaciones se encolan en el hilo del índice ({@link SearchIndex#enqueue}), así que la
+ * petición no espera a Lucene ni a las lecturas que hagan falta; el índice va unos milisegundos por
+ * detrás de la base de datos. Si la escritura forma parte de una transacción (importaciones CSV),
+ * se encola después del commit y no se encola si hay rollback. Tampoco se actualiza si el DAO
+ * devuelve {@link WriteOutcome#DUPLICATE}, porque no se ha escrito nada.
+ * </p>
+ * <p>
+ * Si la escritura lanza una excepción, un lote puede haber confirmado ya bloques anteriores: se
+ * indexan las altas pendientes y se vuelven a leer de la base de datos las filas que el lote
+ * modificaba o borraba (dentro de una transacción, al terminar, haya commit o rollback). Un error
+ * al actualizar el índice solo se registra y hace que se reconstruya en el próximo arranque.
+ * </p>
+ * <p>
+ * Va por fuera de {@code EntityCache} (ver {@link DaoAspectOrder}): cuando vuelve a leer una fila
+ * escrita, la caché ya la ha invalidado.
+ * </p>
+ */
+@Aspect
+@Component
+@Order(DaoAspectOrder.SEARCH_INDEX)
+public class SearchIndexUpdater {
+
+    private final SearchIndex searchIndex;
+
+    public SearchIndexUpdater(SearchIndex searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+
+    @Pointcut("execution(* org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.*DAO.insert*(..))"
+            + " || execution(* org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.*DAO.update*(..))"
+            + " || execution(* org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.*DAO.delete*(..))")
+    void write() {
+    }
+
+    @AfterReturning(pointcut = "write()", returning = "outcome")
+    public void afterWrite(JoinPoint joinPoint, Object outcome) {
+        if (outcome == WriteOutcome.DUPLICATE) {
+            return;
+        }
+        Type type = typeOf(joinPoint);
+        String method = joinPoint.getSignature().getName();
+        Object argument = joinPoint.getArgs()[0];
+
+        Runnable update;
+        if (method.startsWith("insert")) {
+            update = () -> searchIndex.catchUp(type);
+        } else if (method.startsWith("delete")) {
+            long id = ((Number) argument).longValue();
+            update = () -> searchIndex.delete(type, id);
+        } else {
+            // Se copian: el índice las lee más tarde, en otro hilo
+            List<Object> rows = (argument instanceof List<?> list ? list : List.of(argument)).stream()
+                    .map(SearchIndexUpdater::copyOf)
+                    .toList();
+            update = () -> searchIndex.update(type, rows);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    searchIndex.enqueue(method, update);
+                }
+            });
+        } else {
+            searchIndex.enqueue(method, update);
+        }
+    }
+
+    @AfterThrowing("write()")
+    public void afterFailedWrite(JoinPoint joinPoint) {
+        Type type = typeOf(joinPoint);
+        String method = joinPoint.getSignature().getName();
+        Object argument = joinPoint.getArgs()[0];
+
+        Runnable update;
+        if (method.startsWith("insert")) {
+            update = () -> searchIndex.catchUp(type);
+        } else {
+            List<Long> ids = (argument instanceof List<?> list ? list : List.of(argument)).stream()
+                    .map(SearchIndexUpdater::idOf)
+                    .toList();
+            update = () -> searchIndex.reload(type, ids);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Con rollback la relectura no cambia nada, pero quien captura la excepción puede hacer commit
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    searchIndex.enqueue(method, update);
+                }
+            });
+        } else {
+            searchIndex.enqueue(method, update);
+        }
+    }
+
+    private static Type typeOf(JoinPoint joinPoint) {
+        return joinPoint.getTarget() instanceof RegionDAO ? Type.REGION
+                : joinPoint.getTarget() instanceof ProvinceDAO ? Type.PROVINCE
+                : Type.USER;
+    }
+
+    private static Long idOf(Object row) {
+        return switch (row) {
+            case Number id -> id.longValue();
+            case Region region -> region.getId();
+            case Province province -> province.getId();
+            case Users user -> user.getId();
+            default -> throw new IllegalArgumentException("Fila de tipo no indexable: " + row.getClass().getName());
+        };
+    }
+
+    private static Object copyOf(Object row) {
+        return switch (row) {
+            case Region region -> region.copy();
+            case Province province -> province.copy();
+            case Users user -> user.copy();
+            default -> row;
+        };
+    }
+}
@@ -0,0 +1,224 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.views;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.datasource.DataSourceRoute;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Caché del HTML ya renderizado de las filas de los listados (el contenido del {@code <tbody>}),
+ * para no recorrer cada fila con Thymeleaf ni resolver sus mensajes {@code #{...}} en cada visita.
+ * <p>
+ * La clave es (tabla, versión de los datos, idioma). La versión es la de {@code getVersion()} de
+ * los DAOs, así que cualquier escritura deja la entrada anterior inalcanzable; además, al guardar
+ * una versión nueva se eliminan las anteriores de la misma tabla e idioma. El tamaño total se
+ * limita en bytes ({@code app.views.fragment-cache.max-bytes}) y se expulsan primero las entradas
+ * usadas hace más tiempo.
+ * </p>
+ * <p>
+ * La versión se debe leer antes de cargar los datos: si entre ambas llega una escritura, la entrada
+ * queda guardada con una versión antigua y no se vuelve a usar. Los datos se cargan siempre del
+ * primario ({@link DataSourceRoute#onPrimary}): la versión cuenta las escrituras del primario, y
+ * unas filas leídas de una réplica con retraso se servirían con ella hasta la siguiente escritura.
+ * </p>
+ */
+@Component
+public class RenderedFragmentCache implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(RenderedFragmentCache.class);
+
+    private final ITemplateEngine templateEngine;
+    private final JakartaServletWebApplication webApplication;
+    private final long maxBytes;
+
+    // LinkedHashMap en orden de acceso: el primero es el menos usado recientemente (protegido por lock)
+    private final LinkedHashMap<Key, Fragment> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public RenderedFragmentCache(ITemplateEngine templateEngine, ServletContext servletContext,
+                                 @Value("${app.views.fragment-cache.max-bytes:8388608}") long maxBytes) {
+        this.templateEngine = templateEngine;
+        this.webApplication = JakartaServletWebApplication.buildApplication(servletContext);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Clave de un fragmento.
+     *
+     * @param table   nombre del listado
+     * @param version versión de los datos que muestra (varias versiones se concatenan)
+     * @param locale  idioma de la página
+     */
+    public record Key(String table, String version, Locale locale) {
+    }
+
+    private record Fragment(String html, long bytes) {
+    }
+
+    /**
+     * Devuelve el fragmento guardado o, si no está, carga los datos, lo renderiza y lo guarda.
+     *
+     * @param key       clave del fragmento
+     * @param template  plantilla que contiene el fragmento
+     * @param fragment  nombre del fragmento ({@code th:fragment}) dentro de la plantilla
+     * @param variables carga los datos del fragmento; solo se llama si no está en caché, y fijada al primario
+     * @param request   petición en curso (para resolver las URLs {@code @{...}})
+     * @return el HTML del fragmento
+     */
+    public String getOrRender(Key key, String template, String fragment, Supplier<Map<String, Object>> variables,
+                              NativeWebRequest request) {
+        String html = get(key);
+        if (html != null) {
+            hits.increment();
+            return html;
+        }
+        misses.increment();
+        html = render(template, fragment, key.locale(), DataSourceRoute.onPrimary(variables), request);
+        put(key, html);
+        return html;
+    }
+
+    /**
+     * Renderiza un fragmento sin guardarlo (por ejemplo, los resultados de una búsqueda).
+     */
+    public String render(String template, String fragment, Locale locale, Map<String, Object> variables,
+                         NativeWebRequest request) {
+        WebContext context = new WebContext(
+                webApplication.buildExchange(request.getNativeRequest(HttpServletRequest.class),
+                        new PlainUrlResponse(request.getNativeResponse(HttpServletResponse.class))),
+                locale, variables);
+        return templateEngine.process(template, Set.of(fragment), context);
+    }
+
+    private String get(Key key) {
+        lock.lock();
+        try {
+            Fragment fragment = entries.get(key);
+            return fragment != null ? fragment.html() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(Key key, String html) {
+        Fragment fragment = new Fragment(html, sizeOf(html));
+        if (fragment.bytes() > maxBytes) {
+            logger.debug("Fragmento {} demasiado grande para la caché ({} bytes)", key, fragment.bytes());
+            return;
+        }
+        lock.lock();
+        try {
+            // Las versiones anteriores de la misma tabla e idioma ya no se pueden volver a pedir
+            Iterator<Map.Entry<Key, Fragment>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Key, Fragment> entry = it.next();
+                Key other = entry.getKey();
+                if (other.table().equals(key.table()) && other.locale().equals(key.locale())
+                        && !other.version().equals(key.version())) {
+                    bytes -= entry.getValue().bytes();
+                    it.remove();
+                }
+            }
+            Fragment previous = entries.put(key, fragment);
+            if (previous != null) {
+                bytes -= previous.bytes();
+            }
+            bytes += fragment.bytes();
+            Iterator<Fragment> lru = entries.values().iterator();
+            while (bytes > maxBytes && lru.hasNext()) {
+                bytes -= lru.next().bytes();
+                lru.remove();
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Memoria aproximada del String: un byte por carácter si todo es Latin-1 (compact strings), si no dos
+    private static long sizeOf(String html) {
+        boolean latin1 = html.chars().allMatch(c -> c <= 0xFF);
+        return (long) html.length() * (latin1 ? 1 : 2);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("views.fragment.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("views.fragment.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("views.fragment.cache.evictions", evictions, LongAdder::sum)
+                .description("Fragmentos expulsados por falta de espacio")
+                .register(registry);
+        Gauge.builder("views.fragment.cache.hit.ratio", this, RenderedFragmentCache::hitRatio)
+                .register(registry);
+        Gauge.builder("views.fragment.cache.size", this, RenderedFragmentCache::bytesHeld)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    public double hitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public long bytesHeld() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Respuesta que no reescribe las URLs: el fragmento se comparte entre usuarios y no debe
+     * llevar el {@code ;jsessionid=} de quien lo renderizó.
+     */
+    private static final class PlainUrlResponse extends HttpServletResponseWrapper {
+
+        PlainUrlResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public String encodeURL(String url) {
+            return url;
+        }
+
+        @Override
+        public String encodeRedirectURL(String url) {
+            return url;
+        }
+    }
+}
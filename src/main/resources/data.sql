@@ -26,13 +26,13 @@ INSERT IGNORE INTO users (
     lastPasswordChange, passwordExpiresAt, failedLoginAttempts,
     emailVerified, mustChangePassword
 ) VALUES
-(1, 'admin', 'admin123', TRUE, TRUE, NOW(), DATE_ADD(NOW(), INTERVAL 3 MONTH), 0, TRUE, FALSE),
+(1, 'admin', 'admin123', TRUE, TRUE, NOW(), TIMESTAMPADD(MONTH, 3, NOW()), 0, TRUE, FALSE),
 
-(2, 'jdoe', '1234', TRUE, TRUE, NOW(), DATE_ADD(NOW(), INTERVAL 3 MONTH), 1, FALSE, FALSE),
+(2, 'jdoe', '1234', TRUE, TRUE, NOW(), TIMESTAMPADD(MONTH, 3, NOW()), 1, FALSE, FALSE),
 
-(3, 'maria', 'changeme', TRUE, TRUE, NOW(), DATE_ADD(NOW(), INTERVAL 3 MONTH), 0, TRUE, TRUE),
+(3, 'maria', 'changeme', TRUE, TRUE, NOW(), TIMESTAMPADD(MONTH, 3, NOW()), 0, TRUE, TRUE),
 
-(4, 'blockeduser', 'secret', FALSE, FALSE, NOW(), DATE_ADD(NOW(), INTERVAL 3 MONTH), 5, FALSE, FALSE);
+(4, 'blockeduser', 'secret', FALSE, FALSE, NOW(), TIMESTAMPADD(MONTH, 3, NOW()), 5, FALSE, FALSE);
 
 
 INSERT IGNORE INTO provinces (code, name, region_id) VALUES
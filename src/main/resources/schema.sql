@@ -25,3 +25,22 @@ CREATE TABLE IF NOT EXISTS provinces (
    region_id INT NOT NULL,
    FOREIGN KEY (region_id) REFERENCES regions(id)
 );
+
+-- Columnas normalizadas (en mayúsculas) para las comprobaciones de unicidad sin distinguir
+-- mayúsculas. Una condición "UPPER(col) = ?" no puede usar el índice UNIQUE de col y recorre
+-- la tabla entera; "col_norm = ?" es una búsqueda directa en su propio índice único, que
+-- además impide a nivel de base de datos duplicados que solo difieran en mayúsculas.
+-- Se añaden con ALTER ... IF NOT EXISTS para que también se apliquen a bases de datos ya creadas.
+ALTER TABLE regions ADD COLUMN IF NOT EXISTS code_norm VARCHAR(10) GENERATED ALWAYS AS (UPPER(code));
+CREATE UNIQUE INDEX IF NOT EXISTS ux_regions_code_norm ON regions (code_norm);
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS username_norm VARCHAR(40) GENERATED ALWAYS AS (UPPER(username));
+CREATE UNIQUE INDEX IF NOT EXISTS ux_users_username_norm ON users (username_norm);
+
+ALTER TABLE provinces ADD COLUMN IF NOT EXISTS code_norm VARCHAR(10) GENERATED ALWAYS AS (UPPER(code));
+CREATE UNIQUE INDEX IF NOT EXISTS ux_provinces_code_norm ON provinces (code_norm);
+
+-- Búsqueda por prefijo de provincias por nombre (LIKE 'X%' sobre la columna normalizada, que usa
+-- el índice). Los usuarios se buscan por username_norm y las provincias también por code_norm.
+ALTER TABLE provinces ADD COLUMN IF NOT EXISTS name_norm VARCHAR(100) GENERATED ALWAYS AS (UPPER(name));
+CREATE INDEX IF NOT EXISTS ix_provinces_name_norm ON provinces (name_norm);
@@ -0,0 +1,43 @@
+// Autocompletado de los buscadores de los listados: cada <input data-suggest-url> rellena su
+// <datalist> con las sugerencias del endpoint /suggest de la API mientras se escribe.
+document.querySelectorAll('input[data-suggest-url]').forEach(function (input) {
+    var datalist = document.getElementById(input.getAttribute('list'));
+    var timer = null;
+    var controller = null;
+
+    input.addEventListener('input', function () {
+        clearTimeout(timer);
+        var q = input.value.trim();
+        if (!q) {
+            datalist.replaceChildren();
+            return;
+        }
+        // Se espera a que el usuario deje de teclear y se cancela la petición anterior
+        timer = setTimeout(function () {
+            if (controller) {
+                controller.abort();
+            }
+            controller = new AbortController();
+            var params = new URLSearchParams({q: q, limit: '10'});
+            var region = input.form && input.form.elements.region;
+            if (region && region.value) {
+                params.set('region', region.value);
+            }
+            fetch(input.dataset.suggestUrl + '?' + params, {signal: controller.signal})
+                .then(function (response) {
+                    return response.ok ? response.json() : [];
+                })
+                .then(function (suggestions) {
+                    datalist.replaceChildren.apply(datalist, suggestions.map(function (suggestion) {
+                        var option = document.createElement('option');
+                        option.value = suggestion.value;
+                        option.label = suggestion.label;
+                        return option;
+                    }));
+                })
+                .catch(function () {
+                    // Petición cancelada por una más reciente o error de red: se deja la lista como estaba
+                });
+        }, 150);
+    });
+});
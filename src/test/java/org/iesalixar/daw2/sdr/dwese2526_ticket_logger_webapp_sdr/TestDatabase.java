@@ -0,0 +1,40 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.UUID;
+
+/**
+ * Base de datos H2 en memoria para los tests y los benchmarks JMH, en modo de compatibilidad
+ * MariaDB e inicializada con los mismos <code>schema.sql</code> y <code>data.sql</code> que la
+ * aplicación.
+ * <p>
+ * Cada llamada crea una base de datos nueva (el nombre lleva un UUID), así que los tests no
+ * comparten estado. Quien la crea la cierra con {@link HikariDataSource#close()}.
+ * </p>
+ */
+public final class TestDatabase {
+
+    private static final int DEFAULT_POOL_SIZE = 2;
+
+    private TestDatabase() {
+    }
+
+    public static HikariDataSource create(String name) {
+        return create(name, DEFAULT_POOL_SIZE);
+    }
+
+    public static HikariDataSource create(String name, int maximumPoolSize) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + name + "-" + UUID.randomUUID()
+                + ";MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+                new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"));
+        populator.setSqlScriptEncoding("UTF-8");
+        populator.execute(dataSource);
+        return dataSource;
+    }
+}
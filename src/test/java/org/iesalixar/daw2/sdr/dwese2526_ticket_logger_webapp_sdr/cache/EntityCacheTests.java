@@ -0,0 +1,122 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.cache;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.TestDatabase;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.ProvinceDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.ProvinceDaoImple;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.RegionDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.RegionDaoImpl;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.UsersDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.UsersDaoImple;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.datasource.ReadOnlyRoutingAspect;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.datasource.ReadWriteRoutingDataSource;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Region;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Users;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Caché por id sobre H2, con una réplica en la que el usuario 1 se llama "replica" (como una réplica
+ * con retraso). Las filas se cambian también por SQL directo para ver qué se sirve desde la caché.
+ */
+class EntityCacheTests {
+
+    private HikariDataSource primary;
+    private HikariDataSource replica;
+    private JdbcTemplate jdbcTemplate;
+    private EntityCache entityCache;
+    private UsersDAO usersDAO;
+    private ProvinceDAO provinceDAO;
+    private RegionDAO regionDAO;
+
+    @BeforeEach
+    void setUp() {
+        primary = TestDatabase.create("primary");
+        replica = TestDatabase.create("replica");
+        new JdbcTemplate(replica).update("UPDATE users SET username = 'replica' WHERE id = 1");
+        jdbcTemplate = new JdbcTemplate(new ReadWriteRoutingDataSource(primary, replica));
+
+        entityCache = new EntityCache(100, Duration.ofMinutes(10));
+        usersDAO = proxy(new UsersDaoImple(jdbcTemplate));
+        provinceDAO = proxy(new ProvinceDaoImple(jdbcTemplate));
+        regionDAO = proxy(new RegionDaoImpl(jdbcTemplate));
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.close();
+        replica.close();
+    }
+
+    @Test
+    void usersAreLoadedFromThePrimaryAndEvictedOnUpdate() {
+        assertThat(usersDAO.getUsersById(1).getUsername()).isEqualTo("admin");
+
+        jdbcTemplate.update("UPDATE users SET failedLoginAttempts = 3 WHERE id = 1");
+        assertThat(usersDAO.getUsersById(1).getFailedLoginAttempts()).isZero();
+
+        Users admin = usersDAO.getUsersById(1);
+        Users renamed = new Users(admin.getId(), "root", admin.getPasswordHash(), admin.isActive(),
+                admin.isAccountNonLocked(), admin.getLastPasswordChange(), admin.getPasswordExpiresAt(),
+                admin.getFailedLoginAttempts(), admin.isEmailVerified(), admin.isMustChangePassword());
+        usersDAO.updateUsers(renamed);
+        assertThat(usersDAO.getUsersById(1).getUsername()).isEqualTo("root");
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        entityCache.bindTo(registry);
+        assertThat(registry.get("cache.hit.ratio").tag("cache", "users").gauge().value()).isEqualTo(0.5);
+        assertThat(registry.get("cache.memory.estimate").tag("cache", "users").gauge().value()).isPositive();
+    }
+
+    @Test
+    void everyCallGetsItsOwnCopy() {
+        usersDAO.getUsersById(1).setUsername("cambiado");
+
+        assertThat(usersDAO.getUsersById(1).getUsername()).isEqualTo("admin");
+    }
+
+    @Test
+    void failedBatchesStillEvict() {
+        Users admin = usersDAO.getUsersById(1);
+        Users jdoe = usersDAO.getUsersById(2);
+        admin.setUsername("root");
+        jdoe.setUsername("root");
+
+        assertThatThrownBy(() -> usersDAO.updateUsers(List.of(admin, jdoe))).isInstanceOf(DataAccessException.class);
+
+        // Sin transacción la primera fila del lote queda escrita aunque la segunda falle
+        assertThat(jdbcTemplate.queryForObject("SELECT username FROM users WHERE id = 1", String.class)).isEqualTo("root");
+        assertThat(usersDAO.getUsersById(1).getUsername()).isEqualTo("root");
+    }
+
+    @Test
+    void regionUpdatesEvictTheirProvinces() {
+        long regionId = jdbcTemplate.queryForObject("SELECT region_id FROM provinces WHERE id = 1", Long.class);
+        String regionName = provinceDAO.getProvinceById(1L).getRegion().getName();
+
+        Region region = new Region(regionId, "XX", "Renombrada");
+        regionDAO.updateRegion(region);
+
+        assertThat(provinceDAO.getProvinceById(1L).getRegion().getName())
+                .isNotEqualTo(regionName)
+                .isEqualTo("Renombrada");
+    }
+
+    private <T> T proxy(Object dao) {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(dao);
+        proxyFactory.addAspect(entityCache);
+        proxyFactory.addAspect(new ReadOnlyRoutingAspect());
+        return proxyFactory.getProxy();
+    }
+}
@@ -0,0 +1,143 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.coalescing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.TestDatabase;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.ProvinceDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.ProvinceDaoImple;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Province;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Region;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Agrupación de {@code listAllProvinces} sobre H2. La primera conexión que se pide se queda
+ * esperando hasta abrir {@code gate}, así que su consulta sigue en curso mientras llegan las demás.
+ */
+class CoalescingAspectTests {
+
+    private HikariDataSource database;
+    private final CountDownLatch gate = new CountDownLatch(1);
+    private final AtomicInteger connections = new AtomicInteger();
+    private SimpleMeterRegistry registry;
+    private ProvinceDAO provinceDAO;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        database = TestDatabase.create("coalescing");
+
+        DelegatingDataSource gated = new DelegatingDataSource(database) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (connections.getAndIncrement() == 0) {
+                    try {
+                        gate.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.getConnection();
+            }
+        };
+
+        registry = new SimpleMeterRegistry();
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new ProvinceDaoImple(new JdbcTemplate(gated)));
+        proxyFactory.addAspect(new CoalescingAspect(registry));
+        provinceDAO = proxyFactory.getProxy();
+        executor = Executors.newFixedThreadPool(9);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        database.close();
+    }
+
+    @Test
+    void concurrentCallsShareOneQueryUntilTheNextWrite() throws Exception {
+        List<Future<List<Province>>> calls = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            calls.add(executor.submit(provinceDAO::listAllProvinces));
+        }
+        while (coalesced() < 7) {
+            Thread.sleep(5);
+        }
+        assertThat(connections.get()).isEqualTo(1);
+
+        // Tras una escritura no se une a la consulta en curso, que empezó antes
+        Province province = new Province("99", "Nueva", provinceDAO.getProvinceById(1L).getRegion());
+        provinceDAO.insertProvince(province);
+        List<Province> afterWrite = executor.submit(provinceDAO::listAllProvinces).get(10, TimeUnit.SECONDS);
+        assertThat(afterWrite).extracting(Province::getCode).contains("99");
+
+        gate.countDown();
+        List<List<Province>> results = new ArrayList<>();
+        for (Future<List<Province>> call : calls) {
+            results.add(call.get(10, TimeUnit.SECONDS));
+        }
+        // La llamada que ha hecho la consulta recibe la lista del DAO tal cual
+        List<Province> first = results.stream().filter(r -> r.getClass() == ArrayList.class).findFirst().orElseThrow();
+        for (List<Province> provinces : results) {
+            if (provinces == first) {
+                continue;
+            }
+            // Mismo resultado, pero cada llamada con sus propias copias y sin poder modificar la lista
+            assertThat(provinces).isEqualTo(first);
+            assertThat(provinces.get(0)).isNotSameAs(first.get(0));
+            assertThatThrownBy(() -> provinces.remove(0)).isInstanceOf(UnsupportedOperationException.class);
+        }
+        assertThat(coalesced()).isEqualTo(7);
+    }
+
+    @Test
+    void aCallThatNobodyJoinedIsNotCopied() {
+        gate.countDown();
+        List<Province> provinces = provinceDAO.listAllProvinces();
+        provinces.remove(0);
+        assertThat(provinces).hasSize(provinceDAO.listAllProvinces().size() - 1);
+    }
+
+    @Test
+    void failedBatchesStillEndTheFlight() throws Exception {
+        Future<List<Province>> running = executor.submit(provinceDAO::listAllProvinces);
+        while (connections.get() == 0) {
+            Thread.sleep(5);
+        }
+
+        // El segundo código repetido hace fallar el lote, pero la primera fila ya está escrita
+        Region region = provinceDAO.getProvinceById(1L).getRegion();
+        assertThatThrownBy(() -> provinceDAO.insertProvinces(List.of(
+                new Province("98", "Primera", region), new Province("98", "Segunda", region))))
+                .isInstanceOf(DataAccessException.class);
+        List<Province> afterWrite = executor.submit(provinceDAO::listAllProvinces).get(10, TimeUnit.SECONDS);
+        assertThat(afterWrite).extracting(Province::getCode).contains("98");
+
+        gate.countDown();
+        running.get(10, TimeUnit.SECONDS);
+        assertThat(coalesced()).isZero();
+    }
+
+    private double coalesced() {
+        return registry.find("dao.coalesced").counters().stream().mapToDouble(c -> c.count()).sum();
+    }
+}
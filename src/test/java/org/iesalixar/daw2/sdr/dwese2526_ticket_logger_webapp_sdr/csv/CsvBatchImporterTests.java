@@ -0,0 +1,64 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.csv;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.TestDatabase;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.UsersDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.UsersDaoImple;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Users;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Importación de usuarios sobre H2: un username repetido hace fallar el lote y, al reintentar
+ * fila a fila, esa línea aparece en el informe como error y no como importada.
+ */
+class CsvBatchImporterTests {
+
+    private HikariDataSource database;
+    private JdbcTemplate jdbcTemplate;
+    private CsvBatchImporter<Users> importer;
+
+    @BeforeEach
+    void setUp() {
+        database = TestDatabase.create("csv-import");
+        jdbcTemplate = new JdbcTemplate(database);
+        UsersDAO usersDAO = new UsersDaoImple(jdbcTemplate);
+        importer = new CsvBatchImporter<>(List.of("username", "passwordHash"), CsvBatchImporterTests::parseUser,
+                usersDAO::insertUsers, usersDAO::insertUser, 10,
+                new TransactionTemplate(new DataSourceTransactionManager(database)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void duplicateRowsAreReportedAsErrors() throws IOException {
+        CsvImportReport report = importer.importFrom(new StringReader(
+                "username,passwordHash\nnuevo,hash1\nadmin,hash2\notro,hash3\n"));
+
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getFailed()).isEqualTo(1);
+        assertThat(report.getErrors()).containsExactly("Línea 3: " + CsvBatchImporter.DUPLICATE_MESSAGE);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM users WHERE username IN ('nuevo', 'otro')", Integer.class)).isEqualTo(2);
+    }
+
+    private static Users parseUser(CsvRecord record) {
+        LocalDateTime now = LocalDateTime.now();
+        return new Users(record.getRequired("username"), record.getRequired("passwordHash"), true, true,
+                now, now.plusMonths(3), 0, false, false);
+    }
+}
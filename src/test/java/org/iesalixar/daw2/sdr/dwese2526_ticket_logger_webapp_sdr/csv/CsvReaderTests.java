@@ -0,0 +1,51 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.csv;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvReaderTests {
+
+    @Test
+    void readsQuotedFieldsAndLineNumbers() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader(
+                "\uFEFFcode,name\r\nAN,\"Andalucía, Sur\"\n\nMU,\"Dice \"\"hola\"\"\nen dos líneas\"\nCE,"));
+
+        assertThat(reader.readRecord()).containsExactly("code", "name");
+        assertThat(reader.readRecord()).containsExactly("AN", "Andalucía, Sur");
+        assertThat(reader.getRecordLineNumber()).isEqualTo(2);
+        assertThat(reader.readRecord()).containsExactly("MU", "Dice \"hola\"\nen dos líneas");
+        assertThat(reader.getRecordLineNumber()).isEqualTo(4);
+        assertThat(reader.readRecord()).containsExactly("CE", "");
+        assertThat(reader.getRecordLineNumber()).isEqualTo(6);
+        assertThat(reader.readRecord()).isNull();
+    }
+
+    @Test
+    void rejectsUnterminatedQuotes() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a,\"b\n"));
+
+        assertThatThrownBy(reader::readRecord).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void readsBackWhatTheWriterWrites() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvWriter writer = new CsvWriter(out);
+        writer.writeRow(1L, "a,b", "\"x\"", null, true);
+        writer.flush();
+
+        CsvReader reader = new CsvReader(new StringReader(out.toString(StandardCharsets.UTF_8)));
+        List<String> record = reader.readRecord();
+
+        assertThat(record).containsExactly("1", "a,b", "\"x\"", "", "true");
+        assertThat(reader.readRecord()).isNull();
+    }
+}
@@ -0,0 +1,75 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.TestDatabase;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Region;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Instantánea de regiones con escrituras por lotes dentro de una transacción, como en la
+ * importación CSV: no se publica nada hasta el commit. Los lectores reciben copias.
+ */
+class RegionDaoImplTests {
+
+    private HikariDataSource database;
+    private RegionDAO regionDAO;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        database = TestDatabase.create("regions");
+        regionDAO = new RegionDaoImpl(new JdbcTemplate(database));
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void uncommittedRegionsAreNotPublished() {
+        long versionBefore = regionDAO.getVersion();
+        transactionTemplate.executeWithoutResult(status -> {
+            regionDAO.insertRegions(List.of(new Region("98", "Nueva")));
+            // Otro hilo no debe verla antes del commit
+            assertThat(CompletableFuture.supplyAsync(() -> codes(regionDAO)).join()).doesNotContain("98");
+        });
+
+        assertThat(codes(regionDAO)).contains("98");
+        assertThat(regionDAO.getVersion()).isGreaterThan(versionBefore);
+    }
+
+    @Test
+    void rolledBackRegionsAreNotPublished() {
+        transactionTemplate.executeWithoutResult(status -> {
+            regionDAO.insertRegions(List.of(new Region("98", "Nueva")));
+            status.setRollbackOnly();
+        });
+
+        assertThat(codes(regionDAO)).doesNotContain("98");
+    }
+
+    @Test
+    void callersGetTheirOwnCopies() {
+        regionDAO.getRegionById(11L).setName("Cambiada");
+        regionDAO.listAllRegions().get(0).setName("Cambiada");
+
+        assertThat(regionDAO.getRegionById(11L).getName()).isNotEqualTo("Cambiada");
+        assertThat(regionDAO.listAllRegions()).extracting(Region::getName).doesNotContain("Cambiada");
+    }
+
+    private static List<String> codes(RegionDAO regionDAO) {
+        return regionDAO.listAllRegions().stream().map(Region::getCode).toList();
+    }
+}
@@ -0,0 +1,51 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
+
+import org.h2.tools.SimpleResultSet;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Province;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RegionInternerTests {
+
+    @Test
+    void provincesOfTheSameRegionShareOneRegion() throws SQLException {
+        SimpleResultSet rs = new SimpleResultSet();
+        rs.addColumn("id", Types.BIGINT, 19, 0);
+        rs.addColumn("code", Types.VARCHAR, 10, 0);
+        rs.addColumn("name", Types.VARCHAR, 100, 0);
+        rs.addColumn("region_id", Types.BIGINT, 19, 0);
+        rs.addColumn("region_code", Types.VARCHAR, 10, 0);
+        rs.addColumn("region_name", Types.VARCHAR, 100, 0);
+        // 100 regiones distintas: más que la capacidad inicial de la tabla
+        for (int i = 1; i <= 1_000; i++) {
+            long regionId = i % 100;
+            rs.addRow((long) i, "P" + i, "Provincia " + i, regionId, "R" + regionId, "REGION " + regionId);
+        }
+
+        RowMapper<Province> mapper = ProvinceDaoImple.provinceRowMapper();
+        List<Province> provinces = new ArrayList<>();
+        while (rs.next()) {
+            provinces.add(mapper.mapRow(rs, provinces.size()));
+        }
+
+        Set<Object> regions = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Province province : provinces) {
+            long regionId = province.getId() % 100;
+            assertThat(province.getRegion().getId()).isEqualTo(regionId);
+            assertThat(province.getRegion().getCode()).isEqualTo("R" + regionId);
+            assertThat(province.getRegion().getName()).isEqualTo("REGION " + regionId);
+            regions.add(province.getRegion());
+        }
+        assertThat(regions).hasSize(100);
+    }
+}
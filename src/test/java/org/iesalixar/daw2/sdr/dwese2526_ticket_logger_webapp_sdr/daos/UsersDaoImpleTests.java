@@ -0,0 +1,46 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.TestDatabase;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.UserListItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Paginación por clave del listado de usuarios ordenado por username.
+ */
+class UsersDaoImpleTests {
+
+    private HikariDataSource database;
+    private UsersDAO usersDAO;
+
+    @BeforeEach
+    void setUp() {
+        database = TestDatabase.create("users");
+        usersDAO = new UsersDaoImple(new JdbcTemplate(database));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void nextPageByUsernameSurvivesDeletingTheCursorUser() {
+        List<UserListItem> firstPage = usersDAO.listUsersPageByUsername(null, 2);
+        assertThat(firstPage).extracting(UserListItem::username).containsExactly("admin", "blockeduser");
+
+        // El último usuario de la página se borra antes de pedir la siguiente
+        UserListItem last = firstPage.get(1);
+        usersDAO.deleteUsers(last.id());
+
+        assertThat(usersDAO.listUsersPageByUsername(last.username(), 2)).extracting(UserListItem::username)
+                .containsExactly("jdoe", "maria");
+    }
+}
@@ -0,0 +1,149 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.http.Cookie;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.TestDatabase;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.ProvinceDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.ProvinceDaoImple;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.UsersDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.UsersDaoImple;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Province;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Users;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.views.RenderedFragmentCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.StringTemplateResolver;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Enrutado primario/réplica con dos bases de datos H2 independientes. La réplica tiene el usuario 1
+ * renombrado a "replica" y no recibe las escrituras, como una réplica con retraso.
+ */
+class ReadWriteRoutingTests {
+
+    private HikariDataSource primary;
+    private HikariDataSource replica;
+    private ReadWriteRoutingDataSource routing;
+    private UsersDAO usersDAO;
+    private ProvinceDAO provinceDAO;
+
+    @BeforeEach
+    void setUp() {
+        primary = TestDatabase.create("primary");
+        replica = TestDatabase.create("replica");
+        new JdbcTemplate(replica).update("UPDATE users SET username = 'replica' WHERE id = 1");
+
+        routing = new ReadWriteRoutingDataSource(primary, replica);
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new UsersDaoImple(new JdbcTemplate(routing)));
+        proxyFactory.addAspect(new ReadOnlyRoutingAspect());
+        usersDAO = proxyFactory.getProxy();
+
+        AspectJProxyFactory provinceProxyFactory = new AspectJProxyFactory(new ProvinceDaoImple(new JdbcTemplate(routing)));
+        provinceProxyFactory.addAspect(new ReadOnlyRoutingAspect());
+        provinceDAO = provinceProxyFactory.getProxy();
+    }
+
+    @AfterEach
+    void tearDown() {
+        DataSourceRoute.setPrimaryOnly(false);
+        primary.close();
+        replica.close();
+    }
+
+    @Test
+    void readOnlyMethodsUseTheReplicaAndWritesUseThePrimary() {
+        assertThat(usersDAO.getUsersById(1).getUsername()).isEqualTo("replica");
+
+        usersDAO.insertUser(user("nuevo"));
+
+        assertThat(count(primary, "nuevo")).isEqualTo(1);
+        assertThat(count(replica, "nuevo")).isZero();
+        assertThat(usersDAO.existsUserByUsername("nuevo")).isFalse();
+        assertThat(DataSourceRoute.current()).isEqualTo(DataSourceRoute.Target.PRIMARY);
+    }
+
+    @Test
+    void transactionsReadFromThePrimary() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(routing));
+
+        String username = transactionTemplate.execute(status -> {
+            usersDAO.insertUser(user("nuevo"));
+            assertThat(usersDAO.existsUserByUsername("nuevo")).isTrue();
+            return usersDAO.getUsersById(1).getUsername();
+        });
+
+        assertThat(username).isEqualTo("admin");
+    }
+
+    @Test
+    void requestsAfterAPostReadFromThePrimaryWhileTheCookieLasts() {
+        PrimaryStickinessInterceptor interceptor = new PrimaryStickinessInterceptor(5);
+
+        MockHttpServletRequest post = new MockHttpServletRequest("POST", "/users/insert");
+        MockHttpServletResponse postResponse = new MockHttpServletResponse();
+        interceptor.preHandle(post, postResponse, null);
+        assertThat(usersDAO.getUsersById(1).getUsername()).isEqualTo("admin");
+        interceptor.afterCompletion(post, postResponse, null, null);
+
+        Cookie cookie = postResponse.getCookie(PrimaryStickinessInterceptor.COOKIE_NAME);
+        assertThat(cookie).isNotNull();
+        assertThat(cookie.getMaxAge()).isEqualTo(5);
+
+        MockHttpServletRequest redirect = new MockHttpServletRequest("GET", "/users");
+        redirect.setCookies(cookie);
+        interceptor.preHandle(redirect, new MockHttpServletResponse(), null);
+        assertThat(usersDAO.getUsersById(1).getUsername()).isEqualTo("admin");
+        interceptor.afterCompletion(redirect, new MockHttpServletResponse(), null, null);
+
+        MockHttpServletRequest other = new MockHttpServletRequest("GET", "/users");
+        interceptor.preHandle(other, new MockHttpServletResponse(), null);
+        assertThat(usersDAO.getUsersById(1).getUsername()).isEqualTo("replica");
+        interceptor.afterCompletion(other, new MockHttpServletResponse(), null, null);
+    }
+
+    @Test
+    void cachedListsAreCurrentAfterAWriteEvenWithoutTheCookie() {
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(new StringTemplateResolver());
+        RenderedFragmentCache fragmentCache = new RenderedFragmentCache(templateEngine, new MockServletContext(), 1 << 20);
+        String template = "<ul th:fragment=\"rows\"><li th:each=\"p : ${listProvinces}\" th:text=\"${p.code}\"></li></ul>";
+
+        provinceDAO.insertProvince(new Province("98", "Nueva", provinceDAO.getProvinceById(1L).getRegion()));
+
+        // Una petición cualquiera, sin la cookie del POST: la réplica todavía no tiene la provincia
+        String html = fragmentCache.getOrRender(
+                new RenderedFragmentCache.Key("provinces", Long.toString(provinceDAO.getVersion()), Locale.ROOT),
+                template, "rows", () -> Map.of("listProvinces", provinceDAO.listAllProvinces()),
+                new ServletWebRequest(new MockHttpServletRequest("GET", "/provinces"), new MockHttpServletResponse()));
+
+        assertThat(html).contains("<li>98</li>");
+        assertThat(DataSourceRoute.isPrimaryOnly()).isFalse();
+        assertThat(provinceDAO.listAllProvinces()).extracting(Province::getCode).doesNotContain("98");
+    }
+
+    private static int count(HikariDataSource dataSource, String username) {
+        Integer count = new JdbcTemplate(dataSource).queryForObject(
+                "SELECT COUNT(*) FROM users WHERE username = ?", Integer.class, username);
+        return count != null ? count : 0;
+    }
+
+    private static Users user(String username) {
+        return new Users(username, "secret", true, true, LocalDateTime.now(), LocalDateTime.now().plusMonths(3),
+                0, false, false);
+    }
+}
@@ -0,0 +1,140 @@
+package org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.search;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.TestDatabase;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.ProvinceDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.ProvinceDaoImple;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.RegionDAO;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.RegionDaoImpl;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.daos.UsersDaoImple;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Province;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.entities.Region;
+import org.iesalixar.daw2.sdr.dwese2526_ticket_logger_webapp_sdr.search.SearchHit.Type;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Índice de búsqueda sobre H2 y un directorio temporal: reutilización del índice tras un cierre
+ * limpio, reindexado de las provincias de una región modificada y lotes que fallan a medias.
+ */
+class SearchIndexTests {
+
+    @TempDir
+    Path indexDir;
+
+    private HikariDataSource database;
+    private JdbcTemplate jdbcTemplate;
+    private RegionDAO regionDAO;
+
+    @BeforeEach
+    void setUp() {
+        database = TestDatabase.create("search-index");
+        jdbcTemplate = new JdbcTemplate(database);
+        regionDAO = new RegionDaoImpl(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void cleanlyClosedIndexIsReusedAndCaughtUp() throws Exception {
+        SimpleMeterRegistry firstRun = new SimpleMeterRegistry();
+        SearchIndex searchIndex = newSearchIndex(firstRun);
+        searchIndex.start();
+        awaitRebuilds(firstRun, 1);
+        searchIndex.close();
+
+        // Alta mientras la aplicación está parada
+        jdbcTemplate.update("INSERT INTO provinces (code, name, region_id) VALUES ('98', 'Nueva', 11)");
+
+        SimpleMeterRegistry secondRun = new SimpleMeterRegistry();
+        SearchIndex reopened = newSearchIndex(secondRun);
+        reopened.start();
+        try {
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (reopened.search("nueva", Type.PROVINCE, 10).isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(reopened.search("nueva", Type.PROVINCE, 10)).extracting(SearchHit::title).containsExactly("Nueva");
+            assertThat(reopened.search("badajoz", Type.PROVINCE, 10)).hasSize(1);
+            assertThat(secondRun.get("search.index.rebuild").timer().count()).isZero();
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void renamingARegionReindexesItsProvinces() throws Exception {
+        SearchIndex searchIndex = newSearchIndex(new SimpleMeterRegistry());
+        searchIndex.open();
+        try {
+            searchIndex.rebuild();
+
+            Region region = regionDAO.getRegionById(11L);
+            region.setName("Tierra de Barros");
+            regionDAO.updateRegion(region);
+            searchIndex.update(Type.REGION, List.of(region));
+
+            assertThat(searchIndex.search("barros", Type.PROVINCE, 10)).extracting(SearchHit::title)
+                    .containsExactlyInAnyOrder("Badajoz", "Cáceres");
+        } finally {
+            searchIndex.close();
+        }
+    }
+
+    @Test
+    void failedBatchUpdatesStillReachTheIndex() throws Exception {
+        SearchIndex searchIndex = newSearchIndex(new SimpleMeterRegistry());
+        searchIndex.open();
+        try {
+            searchIndex.rebuild();
+            AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new ProvinceDaoImple(jdbcTemplate));
+            proxyFactory.addAspect(new SearchIndexUpdater(searchIndex));
+            ProvinceDAO provinceDAO = proxyFactory.getProxy();
+
+            // La segunda fila repite un código y hace fallar el lote, pero la primera ya está escrita
+            Province renamed = provinceDAO.getProvinceById(1L);
+            renamed.setName("Renombrada");
+            Province duplicate = provinceDAO.getProvinceById(2L);
+            duplicate.setCode(provinceDAO.getProvinceById(3L).getCode());
+            assertThatThrownBy(() -> provinceDAO.updateProvinces(List.of(renamed, duplicate)))
+                    .isInstanceOf(DataAccessException.class);
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (searchIndex.search("renombrada", Type.PROVINCE, 10).isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(searchIndex.search("renombrada", Type.PROVINCE, 10)).extracting(SearchHit::id).containsExactly(1L);
+        } finally {
+            searchIndex.close();
+        }
+    }
+
+    private SearchIndex newSearchIndex(SimpleMeterRegistry registry) {
+        return new SearchIndex(regionDAO, new ProvinceDaoImple(jdbcTemplate), new UsersDaoImple(jdbcTemplate), registry,
+                indexDir.toString(), false, Duration.ofSeconds(30));
+    }
+
+    private static void awaitRebuilds(SimpleMeterRegistry registry, long count) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (registry.get("search.index.rebuild").timer().count() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(registry.get("search.index.rebuild").timer().count()).isEqualTo(count);
+    }
+}